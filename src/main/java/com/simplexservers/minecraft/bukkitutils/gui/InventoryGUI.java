@@ -2,15 +2,24 @@ package com.simplexservers.minecraft.bukkitutils.gui;
 
 import org.bukkit.Bukkit;
 import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryHolder;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.plugin.java.JavaPlugin;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
-import java.util.TreeMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 /**
  * Represents a inventory based GUI.
+ * The GUI is the holder of its Bukkit inventory, so checking if an
+ * inventory belongs to the GUI is a reference comparison.
  */
-public class InventoryGUI {
+public class InventoryGUI implements InventoryHolder {
 
 	/**
 	 * The InventoryGUIManager the GUI is a child of.
@@ -23,12 +32,86 @@ public class InventoryGUI {
 	/**
 	 * The inventory slot entries for the GUI.
 	 */
-	private TreeMap<Integer, InventoryGUIEntry> slotValues;
+	private SlotTable slotValues;
+	/**
+	 * The template whose pool the GUI is returned to once closed, or null if the GUI isn't pooled.
+	 */
+	private InventoryGUITemplate template = null;
+	/**
+	 * The asynchronous population that has yet to be committed, or null if there isn't one.
+	 */
+	private CompletableFuture<InventoryGUI> pendingPopulation = null;
+	/**
+	 * The staged entries that have yet to be committed, indexed by slot.
+	 * A null entry at a staged slot removes the slot's entry.
+	 */
+	private final InventoryGUIEntry[] stagedEntries = new InventoryGUIEntry[SlotTable.MAX_SLOTS];
+	/**
+	 * The slots with staged changes.
+	 */
+	private final BitSet stagedSlots = new BitSet(SlotTable.MAX_SLOTS);
+	/**
+	 * The handler for clicks on entries without their own handler, or null if there isn't one.
+	 */
+	private InventoryGUIClickHandler<Object> clickHandler = null;
+	/**
+	 * If selections are also dispatched as an InventoryGUISelectEvent.
+	 */
+	private boolean selectEventEnabled = true;
+	/**
+	 * The limiter for clicks in the GUI, or null to use the manager's.
+	 */
+	private InventoryGUIClickLimiter clickLimiter = null;
 
-	private InventoryGUI(InventoryGUIManager manager, Inventory inv, TreeMap<Integer, InventoryGUIEntry> slotValues) {
+	private InventoryGUI(InventoryGUIManager manager, String title, SlotTable slotValues) {
 		this.manager = manager;
-		this.inv = inv;
 		this.slotValues = slotValues;
+		this.inv = createInventory(title);
+	}
+
+	/**
+	 * Creates an empty GUI with a fixed size inventory.
+	 *
+	 * @param manager The InventoryGUIManager the GUI is a child of.
+	 * @param title The title of the inventory.
+	 * @param size The number of slots in the inventory.
+	 */
+	InventoryGUI(InventoryGUIManager manager, String title, int size) {
+		this.manager = manager;
+		this.slotValues = new SlotTable();
+		this.inv = Bukkit.createInventory(this, size, title);
+	}
+
+	/**
+	 * Creates a GUI from the template's precomputed layout.
+	 *
+	 * @param template The template to stamp the GUI from.
+	 * @param pooled If the GUI is returned to the template's pool once closed.
+	 */
+	InventoryGUI(InventoryGUITemplate template, boolean pooled) {
+		this.manager = template.getManager();
+		this.template = pooled ? template : null;
+		this.slotValues = template.copyLayout();
+		this.inv = Bukkit.createInventory(this, template.getSize(), template.getTitle());
+		inv.setContents(template.getContents());
+	}
+
+	/**
+	 * Gets the InventoryGUI that holds the given inventory.
+	 * Returns null if the inventory is not a GUI inventory.
+	 *
+	 * @param inv The inventory to get the GUI for.
+	 * @return The GUI holding the inventory.
+	 */
+	public static InventoryGUI getGUI(Inventory inv) {
+		if (inv != null) {
+			InventoryHolder holder = inv.getHolder();
+			if (holder instanceof InventoryGUI) {
+				return (InventoryGUI) holder;
+			}
+		}
+
+		return null;
 	}
 
 	/**
@@ -36,6 +119,7 @@ public class InventoryGUI {
 	 *
 	 * @return The Bukkit inventory being shown to the player.
 	 */
+	@Override
 	public Inventory getInventory() {
 		return inv;
 	}
@@ -68,31 +152,174 @@ public class InventoryGUI {
 	 * @return true if the inventory provided is the GUI's.
 	 */
 	public boolean isInventory(Inventory inv) {
-		return inv != null
-				&& this.inv.getType() == inv.getType()
-				&& this.inv.getTitle().equals(inv.getTitle());
+		return inv != null && inv.getHolder() == this;
 	}
 
 	/**
 	 * Updates the entry at the given slot.
+	 * Any other staged changes are committed with it.
 	 *
 	 * @param slot The slot to update the entry at.
 	 * @param newEntry The new entry to put in the slot.
 	 */
 	public void updateEntry(int slot, InventoryGUIEntry newEntry) {
-		slotValues.put(slot, newEntry);
-		if (slot > inv.getSize()) { // Item would be outside the inventory, we need to re-create a new one
-			// Calculate the new size of the inventory
-			int highestSlotIndex = slotValues.lastKey();
-			int invSlots = (int) Math.ceil(highestSlotIndex / 9D) * 9;
-			inv = Bukkit.createInventory(null, invSlots, inv.getTitle());
-			// Populate the inventory
-			slotValues.forEach((slotIndex, entry) -> inv.setItem(slotIndex, entry.getItemStack()));
+		stageEntry(slot, newEntry);
+		commitChanges();
+	}
+
+	/**
+	 * Updates the entries at the given slots in one batch.
+	 * Any other staged changes are committed with them.
+	 *
+	 * @param entries The new entries keyed by slot. A null entry removes the slot's entry.
+	 */
+	public void updateEntries(Map<Integer, InventoryGUIEntry> entries) {
+		entries.forEach(this::stageEntry);
+		commitChanges();
+	}
+
+	/**
+	 * Stages the entry to be put at the given slot on the next commit.
+	 * Staging the same slot again replaces the staged entry.
+	 * If the manager's update task is running, the change is committed on the next tick.
+	 *
+	 * @param slot The slot to update the entry at.
+	 * @param newEntry The new entry to put in the slot, or null to remove the slot's entry.
+	 */
+	public void stageEntry(int slot, InventoryGUIEntry newEntry) {
+		if (slot < 0 || slot >= SlotTable.MAX_SLOTS) {
+			throw new IllegalArgumentException("Invalid slot '" + slot + "'. Must be between 0 and " + (SlotTable.MAX_SLOTS - 1));
+		}
+
+		if (stagedSlots.isEmpty()) {
+			manager.markDirty(this);
+		}
+		stagedEntries[slot] = newEntry;
+		stagedSlots.set(slot);
+	}
+
+	/**
+	 * Stages the removal of the entry at the given slot on the next commit.
+	 *
+	 * @param slot The slot to remove the entry at.
+	 */
+	public void stageRemoval(int slot) {
+		stageEntry(slot, null);
+	}
+
+	/**
+	 * Gets if the GUI has staged changes that have yet to be committed.
+	 *
+	 * @return true if there are staged changes, false otherwise.
+	 */
+	public boolean hasStagedChanges() {
+		return !stagedSlots.isEmpty();
+	}
+
+	/**
+	 * Discards the staged changes without applying them.
+	 */
+	public void discardChanges() {
+		for (int slot = stagedSlots.nextSetBit(0); slot >= 0; slot = stagedSlots.nextSetBit(slot + 1)) {
+			stagedEntries[slot] = null;
+		}
+		stagedSlots.clear();
+		manager.clearDirty(this);
+	}
+
+	/**
+	 * Applies the staged changes to the GUI.
+	 * Only slots whose new item differs from the item currently in the inventory are sent to it,
+	 * so an item changed in place and staged again is still sent,
+	 * and the inventory is only re-created if a staged slot is outside of it.
+	 *
+	 * @return The number of slots whose shown item changed.
+	 */
+	public int commitChanges() {
+		if (stagedSlots.isEmpty()) {
+			return 0;
+		}
+
+		manager.clearDirty(this);
+		BitSet changedSlots = new BitSet(SlotTable.MAX_SLOTS);
+		for (int slot = stagedSlots.nextSetBit(0); slot >= 0; slot = stagedSlots.nextSetBit(slot + 1)) {
+			InventoryGUIEntry newEntry = stagedEntries[slot];
+			stagedEntries[slot] = null;
+
+			slotValues.put(slot, newEntry);
+			// Compare against the inventory's copy, the entry's item may have been changed in place
+			if (slot >= inv.getSize() || !Objects.equals(inv.getItem(slot), getItemStack(newEntry))) {
+				changedSlots.set(slot);
+			}
+		}
+		stagedSlots.clear();
+
+		if (slotValues.getHighestSlot() >= inv.getSize()) { // Items would be outside the inventory, we need to re-create a new one
+			inv = createInventory(inv.getTitle());
 
 			// Have the players re-open the GUI
 			manager.reopenGUI(this);
 		} else {
-			inv.setItem(slot, newEntry.getItemStack());
+			for (int slot = changedSlots.nextSetBit(0); slot >= 0; slot = changedSlots.nextSetBit(slot + 1)) {
+				inv.setItem(slot, getItemStack(slotValues.get(slot)));
+			}
+		}
+
+		return changedSlots.cardinality();
+	}
+
+	/**
+	 * Computes entries off of the main thread and commits them to the GUI
+	 * in one batch on the main thread. The GUI can be shown with placeholder
+	 * entries while the entries are computed.
+	 * The population is cancelled if all of the GUI's viewers close it
+	 * or another population is started before it is committed.
+	 *
+	 * @param plugin The JavaPlugin to register the tasks under.
+	 * @param loader Computes the entries keyed by slot. Called asynchronously.
+	 * @return A future completed with the GUI once the entries are committed.
+	 */
+	public CompletableFuture<InventoryGUI> populateAsync(JavaPlugin plugin, Supplier<Map<Integer, InventoryGUIEntry>> loader) {
+		cancelPopulation();
+		CompletableFuture<InventoryGUI> population = new CompletableFuture<>();
+		pendingPopulation = population;
+
+		Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+			if (population.isDone()) {
+				return; // Cancelled before it started
+			}
+
+			Map<Integer, InventoryGUIEntry> entries;
+			try {
+				entries = loader.get();
+			} catch (Throwable t) {
+				population.completeExceptionally(t);
+				return;
+			}
+
+			// Commit the entries on the main thread
+			Bukkit.getScheduler().runTask(plugin, () -> {
+				if (pendingPopulation == population) {
+					pendingPopulation = null;
+				}
+
+				if (!population.isDone()) {
+					updateEntries(entries);
+					population.complete(this);
+				}
+			});
+		});
+
+		return population;
+	}
+
+	/**
+	 * Cancels the asynchronous population that has yet to be committed, if there is one.
+	 */
+	public void cancelPopulation() {
+		if (pendingPopulation != null) {
+			pendingPopulation.cancel(false);
+			pendingPopulation = null;
 		}
 	}
 
@@ -102,28 +329,194 @@ public class InventoryGUI {
 	 * @param slot The slot to remove the entry at.
 	 */
 	public void removeEntry(int slot) {
-		slotValues.remove(slot);
-		inv.setItem(slot, null);
+		stageRemoval(slot);
+		commitChanges();
 	}
 
+	/**
+	 * Gets the slots whose entry holds the given custom value.
+	 *
+	 * @param val The custom value to search for.
+	 * @return The slots holding the value, in ascending order.
+	 */
 	public Collection<Integer> getSlotsWithValue(Object val) {
-		ArrayList<Integer> matchingSlots = new ArrayList<>();
-		slotValues.entrySet().stream()
-				.filter(entry -> entry.getValue().getValue().equals(val))
-				.forEach(entry -> matchingSlots.add(entry.getKey()));
+		BitSet slots = slotValues.getSlotsWithValue(val);
+		ArrayList<Integer> matchingSlots = new ArrayList<>(slots.cardinality());
+		for (int slot = slots.nextSetBit(0); slot >= 0; slot = slots.nextSetBit(slot + 1)) {
+			matchingSlots.add(slot);
+		}
 		return matchingSlots;
 	}
 
-	@Override
-	public boolean equals(Object obj) {
-		if (obj.getClass() == InventoryGUI.class) {
-			InventoryGUI otherGUI = (InventoryGUI) obj;
-			return otherGUI.isInventory(inv);
+	/**
+	 * Replaces the shown item of every entry that holds the given custom value.
+	 * The entries keep their handlers and click policy.
+	 *
+	 * @param val The custom value of the entries to update.
+	 * @param stack The new item to show for the entries.
+	 * @return The number of entries that were updated.
+	 */
+	public int updateEntriesWithValue(Object val, ItemStack stack) {
+		BitSet slots = slotValues.getSlotsWithValue(val);
+		for (int slot = slots.nextSetBit(0); slot >= 0; slot = slots.nextSetBit(slot + 1)) {
+			stageEntry(slot, slotValues.get(slot).withItem(stack));
 		}
+		commitChanges();
+		return slots.cardinality();
+	}
+
+	/**
+	 * Gets the handler for clicks on entries that don't have their own handler.
+	 *
+	 * @return The GUI's click handler, or null if it doesn't have one.
+	 */
+	public InventoryGUIClickHandler<Object> getClickHandler() {
+		return clickHandler;
+	}
+
+	/**
+	 * Sets the handler for clicks on entries that don't have their own handler.
+	 *
+	 * @param clickHandler The GUI's click handler, or null to remove it.
+	 */
+	public void setClickHandler(InventoryGUIClickHandler<Object> clickHandler) {
+		this.clickHandler = clickHandler;
+	}
+
+	/**
+	 * Gets if selections in the GUI are also dispatched as an InventoryGUISelectEvent
+	 * through the Bukkit PluginManager.
+	 *
+	 * @return true if the select event is fired, false otherwise.
+	 */
+	public boolean isSelectEventEnabled() {
+		return selectEventEnabled;
+	}
+
+	/**
+	 * Sets if selections in the GUI are also dispatched as an InventoryGUISelectEvent.
+	 * GUIs that only use click handlers can disable it to skip the global event dispatch.
+	 *
+	 * @param selectEventEnabled true to fire the select event, false otherwise.
+	 */
+	public void setSelectEventEnabled(boolean selectEventEnabled) {
+		this.selectEventEnabled = selectEventEnabled;
+	}
+
+	/**
+	 * Gets the limiter for clicks in the GUI.
+	 *
+	 * @return The GUI's click limiter, or null if it uses the manager's.
+	 */
+	public InventoryGUIClickLimiter getClickLimiter() {
+		return clickLimiter;
+	}
+
+	/**
+	 * Sets the limiter for clicks in the GUI, overriding the manager's.
+	 *
+	 * @param clickLimiter The GUI's click limiter, or null to use the manager's.
+	 */
+	public void setClickLimiter(InventoryGUIClickLimiter clickLimiter) {
+		this.clickLimiter = clickLimiter;
+	}
+
+	/**
+	 * Gets the InventoryGUIManager the GUI is a child of.
+	 *
+	 * @return The GUI's manager.
+	 */
+	InventoryGUIManager getManager() {
+		return manager;
+	}
 
+	/**
+	 * Handles a selection of the slot before it is dispatched as an InventoryGUISelectEvent.
+	 *
+	 * @param slot The slot that was selected.
+	 * @return true if the selection was handled by the GUI and should not be dispatched.
+	 */
+	boolean handleSelect(int slot) {
 		return false;
 	}
 
+	/**
+	 * Called by the manager once the last viewer has closed the GUI.
+	 * Hands the GUI back to its template's pool if it has one.
+	 */
+	void onAllViewersClosed() {
+		cancelPopulation();
+		if (template != null) {
+			template.release(this);
+		}
+	}
+
+	/**
+	 * Resets the slots that differ from the template back to the template's entries.
+	 * Only the changed slots are touched.
+	 *
+	 * @return true if the GUI was reset, false if it no longer matches the template's size.
+	 */
+	boolean resetToTemplate() {
+		if (inv.getSize() != template.getSize()) {
+			return false;
+		}
+
+		discardChanges();
+		clickHandler = null;
+		selectEventEnabled = true;
+		clickLimiter = null;
+		ItemStack[] contents = template.getContents();
+		for (int slot = 0; slot < contents.length; slot++) {
+			InventoryGUIEntry templateEntry = template.getEntry(slot);
+			if (slotValues.get(slot) != templateEntry) {
+				slotValues.put(slot, templateEntry);
+				inv.setItem(slot, contents[slot]);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Creates a Bukkit inventory held by the GUI that is large enough
+	 * for every entry and populates it.
+	 *
+	 * @param title The title of the inventory.
+	 * @return The populated inventory.
+	 */
+	private Inventory createInventory(String title) {
+		// Round the highest slot index to the highest 9th
+		int invSlots = getInventorySize(slotValues.getHighestSlot());
+
+		Inventory inv = Bukkit.createInventory(this, invSlots, title);
+		// Populate the inventory
+		for (int slot = slotValues.nextSlot(0); slot >= 0; slot = slotValues.nextSlot(slot + 1)) {
+			inv.setItem(slot, slotValues.get(slot).getItemStack());
+		}
+		return inv;
+	}
+
+	/**
+	 * Gets the item shown for the entry.
+	 *
+	 * @param entry The entry to get the item of, may be null.
+	 * @return The entry's item, or null if there is no entry.
+	 */
+	private static ItemStack getItemStack(InventoryGUIEntry entry) {
+		return entry == null ? null : entry.getItemStack();
+	}
+
+	/**
+	 * Gets the size of the inventory needed to show the given slot,
+	 * rounded up to a full row.
+	 *
+	 * @param highestSlotIndex The highest slot index the inventory must hold.
+	 * @return The number of slots for the inventory.
+	 */
+	static int getInventorySize(int highestSlotIndex) {
+		return Math.max(1, (int) Math.ceil((highestSlotIndex + 1) / 9D)) * 9;
+	}
+
 	/**
 	 * Builder for an InventoryGUI
 	 */
@@ -140,7 +533,7 @@ public class InventoryGUI {
 		/**
 		 * The inventory slot entries for the GUI.
 		 */
-		private TreeMap<Integer, InventoryGUIEntry> slotValues = new TreeMap<>(Integer::compare);
+		private SlotTable slotValues = new SlotTable();
 
 		public InventoryGUIBuilder(InventoryGUIManager manager, String title) {
 			this.manager = manager;
@@ -172,14 +565,27 @@ public class InventoryGUI {
 		 * @return The constructed inventory GUI.
 		 */
 		public InventoryGUI build() {
-			// Get the highest slot index
-			int highestSlotIndex = slotValues.lastKey();
-			// Round to the highest 9th
-			int invSlots = (int) Math.ceil((highestSlotIndex + 1) / 9D) * 9;
+			return new InventoryGUI(manager, title, slotValues);
+		}
 
-			Inventory inv = Bukkit.createInventory(null, invSlots, title);
-			slotValues.forEach((slot, entry) -> inv.setItem(slot, entry.getItemStack())); // Populate the inventory
-			return new InventoryGUI(manager, inv, slotValues);
+		/**
+		 * Builds a template from the current entries that per-player GUIs can be stamped from.
+		 *
+		 * @return The constructed template.
+		 */
+		public InventoryGUITemplate buildTemplate() {
+			return buildTemplate(0);
+		}
+
+		/**
+		 * Builds a template from the current entries that per-player GUIs can be stamped from.
+		 *
+		 * @param poolSize The number of closed GUIs the template keeps for reuse.
+		 *                 Only GUIs created with {@link InventoryGUITemplate#createPooledGUI()} are pooled.
+		 * @return The constructed template.
+		 */
+		public InventoryGUITemplate buildTemplate(int poolSize) {
+			return new InventoryGUITemplate(manager, title, slotValues.copy(), poolSize);
 		}
 
 		/**
@@ -188,11 +594,7 @@ public class InventoryGUI {
 		 * @return The next available slot id.
 		 */
 		private int getNextSlotID() {
-			if (slotValues.isEmpty()) {
-				return 0;
-			}
-
-			return slotValues.lastKey() + 1;
+			return slotValues.getHighestSlot() + 1;
 		}
 
 	}
@@ -0,0 +1,29 @@
+package com.simplexservers.minecraft.bukkitutils.gui;
+
+import org.bukkit.entity.Player;
+import org.bukkit.event.inventory.ClickType;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Handles a player clicking an entry in an InventoryGUI with an action that may complete later,
+ * such as database work. The action is considered in flight until the returned stage completes,
+ * which the entry's InventoryGUIClickPolicy uses to skip duplicate clicks.
+ *
+ * @param <T> The type of the clicked entry's custom value.
+ */
+@FunctionalInterface
+public interface InventoryGUIActionHandler<T> {
+
+	/**
+	 * Called on the main thread when the player clicks the entry.
+	 *
+	 * @param player The player that clicked the entry.
+	 * @param gui The GUI the entry is in.
+	 * @param value The custom value attached to the entry.
+	 * @param click The type of click.
+	 * @return A stage completed once the action is done, or null if it already is.
+	 */
+	CompletionStage<?> onClick(Player player, InventoryGUI gui, T value, ClickType click);
+
+}
@@ -0,0 +1,25 @@
+package com.simplexservers.minecraft.bukkitutils.gui;
+
+import org.bukkit.entity.Player;
+import org.bukkit.event.inventory.ClickType;
+
+/**
+ * Handles a player clicking an entry in an InventoryGUI.
+ * Handlers are invoked directly by the InventoryGUIListener on the main thread.
+ *
+ * @param <T> The type of the clicked entry's custom value.
+ */
+@FunctionalInterface
+public interface InventoryGUIClickHandler<T> {
+
+	/**
+	 * Called when the player clicks the entry.
+	 *
+	 * @param player The player that clicked the entry.
+	 * @param gui The GUI the entry is in.
+	 * @param value The custom value attached to the entry.
+	 * @param click The type of click.
+	 */
+	void onClick(Player player, InventoryGUI gui, T value, ClickType click);
+
+}
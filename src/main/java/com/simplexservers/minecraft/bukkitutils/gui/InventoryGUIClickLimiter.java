@@ -0,0 +1,320 @@
+package com.simplexservers.minecraft.bukkitutils.gui;
+
+import java.lang.ref.WeakReference;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits how often players' clicks in inventory GUIs are dispatched.
+ *
+ * Repeated clicks on the same slot within the debounce time are dropped, clicks past
+ * the per-player rate are dropped, and clicks on IDEMPOTENT or EXCLUSIVE entries
+ * are dropped while the matching action is still in flight, up to the in-flight timeout.
+ * Every dropped click is counted, see the getters for the counts.
+ * The state of players that haven't clicked for a while is discarded when their last action completes
+ * and by periodic sweeps, so the limiter doesn't retain players or GUIs that are gone
+ * even if {@link #forget(UUID)} is never called for them.
+ * This class is thread-safe.
+ */
+public class InventoryGUIClickLimiter {
+
+	/**
+	 * The length of the window clicks are counted over for the rate limit.
+	 */
+	private static final long RATE_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+	/**
+	 * The default time an action may stay in flight before its entry accepts clicks again.
+	 */
+	private static final long DEFAULT_IN_FLIGHT_TIMEOUT_MILLIS = 30000L;
+	/**
+	 * The minimum time between sweeps for idle click states made while accepting clicks.
+	 */
+	private static final long SWEEP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+	/**
+	 * The time repeated clicks on the same slot are dropped for.
+	 */
+	private final long debounceNanos;
+	/**
+	 * The maximum number of clicks a player may make per second, or 0 for no limit.
+	 */
+	private final int maxClicksPerSecond;
+	/**
+	 * The time an action may stay in flight before it is considered abandoned.
+	 */
+	private final long inFlightTimeoutNanos;
+	/**
+	 * The click state of each player.
+	 */
+	private final Map<UUID, ClickState> states = new ConcurrentHashMap<>();
+	/**
+	 * The number of clicks that were accepted.
+	 */
+	private final AtomicLong accepted = new AtomicLong();
+	/**
+	 * The number of clicks dropped for repeating the previous click too quickly.
+	 */
+	private final AtomicLong droppedDebounced = new AtomicLong();
+	/**
+	 * The number of clicks dropped for exceeding the click rate.
+	 */
+	private final AtomicLong droppedThrottled = new AtomicLong();
+	/**
+	 * The number of clicks dropped because the matching action was still in flight.
+	 */
+	private final AtomicLong droppedInFlight = new AtomicLong();
+	/**
+	 * When the last sweep for idle click states started.
+	 */
+	private final AtomicLong lastSweep = new AtomicLong(System.nanoTime());
+
+	/**
+	 * Creates an InventoryGUIClickLimiter.
+	 *
+	 * @param debounceMillis The time, in milliseconds, repeated clicks on the same slot are dropped for, or 0 to not debounce.
+	 * @param maxClicksPerSecond The maximum number of clicks a player may make per second, or 0 for no limit.
+	 */
+	public InventoryGUIClickLimiter(long debounceMillis, int maxClicksPerSecond) {
+		this(debounceMillis, maxClicksPerSecond, DEFAULT_IN_FLIGHT_TIMEOUT_MILLIS);
+	}
+
+	/**
+	 * Creates an InventoryGUIClickLimiter.
+	 *
+	 * @param debounceMillis The time, in milliseconds, repeated clicks on the same slot are dropped for, or 0 to not debounce.
+	 * @param maxClicksPerSecond The maximum number of clicks a player may make per second, or 0 for no limit.
+	 * @param inFlightTimeoutMillis The time, in milliseconds, an action may stay in flight
+	 *                              before its entry accepts clicks again even if it never completed.
+	 */
+	public InventoryGUIClickLimiter(long debounceMillis, int maxClicksPerSecond, long inFlightTimeoutMillis) {
+		if (debounceMillis < 0 || maxClicksPerSecond < 0) {
+			throw new IllegalArgumentException("Click limits must not be negative");
+		}
+		if (inFlightTimeoutMillis <= 0) {
+			throw new IllegalArgumentException("Invalid in-flight timeout '" + inFlightTimeoutMillis + "'. Must be positive");
+		}
+
+		this.debounceNanos = TimeUnit.MILLISECONDS.toNanos(debounceMillis);
+		this.maxClicksPerSecond = maxClicksPerSecond;
+		this.inFlightTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(inFlightTimeoutMillis);
+	}
+
+	/**
+	 * Checks if the player's click should be dispatched and records it if it should.
+	 * If accepted, {@link #release(UUID, InventoryGUI, InventoryGUIEntry)} must be called once the click's action completes.
+	 *
+	 * @param playerID The UUID of the player that clicked.
+	 * @param gui The GUI that was clicked.
+	 * @param slot The slot that was clicked.
+	 * @param entry The entry in the slot, may be null.
+	 * @return true if the click should be dispatched, false if it was dropped.
+	 */
+	public boolean tryAcquire(UUID playerID, InventoryGUI gui, int slot, InventoryGUIEntry entry) {
+		ClickState state = states.computeIfAbsent(playerID, id -> new ClickState());
+		synchronized (state) {
+			long now = System.nanoTime();
+			if (debounceNanos > 0 && state.lastGUI.get() == gui && state.lastSlot == slot && now - state.lastClick < debounceNanos) {
+				droppedDebounced.incrementAndGet();
+				return false;
+			}
+
+			if (maxClicksPerSecond > 0) {
+				if (now - state.windowStart >= RATE_WINDOW_NANOS) {
+					state.windowStart = now;
+					state.windowClicks = 0;
+				}
+				if (state.windowClicks >= maxClicksPerSecond) {
+					droppedThrottled.incrementAndGet();
+					return false;
+				}
+			}
+
+			Object inFlightKey = getInFlightKey(gui, entry);
+			if (inFlightKey != null) {
+				Long startedAt = state.inFlight.get(inFlightKey);
+				if (startedAt != null && now - startedAt < inFlightTimeoutNanos) {
+					droppedInFlight.incrementAndGet();
+					return false;
+				}
+				state.inFlight.put(inFlightKey, now); // Replaces an abandoned action
+			}
+
+			state.windowClicks++;
+			if (state.lastGUI.get() != gui) {
+				state.lastGUI = new WeakReference<>(gui);
+			}
+			state.lastSlot = slot;
+			state.lastClick = now;
+		}
+
+		accepted.incrementAndGet();
+
+		long now = System.nanoTime();
+		long lastSweepStart = lastSweep.get();
+		if (now - lastSweepStart >= SWEEP_INTERVAL_NANOS && lastSweep.compareAndSet(lastSweepStart, now)) {
+			sweep();
+		}
+		return true;
+	}
+
+	/**
+	 * Marks the action of an accepted click as completed.
+	 * Discards the player's click state if it no longer limits anything.
+	 *
+	 * @param playerID The UUID of the player that clicked.
+	 * @param gui The GUI that was clicked.
+	 * @param entry The entry that was clicked, may be null.
+	 */
+	public void release(UUID playerID, InventoryGUI gui, InventoryGUIEntry entry) {
+		Object inFlightKey = getInFlightKey(gui, entry);
+		if (inFlightKey == null) {
+			return;
+		}
+
+		ClickState state = states.get(playerID);
+		if (state != null) {
+			synchronized (state) {
+				state.inFlight.remove(inFlightKey);
+				if (isIdle(state, System.nanoTime())) {
+					states.remove(playerID, state);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Discards the in-flight actions that have timed out and the click states that no longer limit anything.
+	 * Called while accepting clicks at most every 30 seconds, and by the InventoryGUIManager's
+	 * leak audit task for its default click limiter so states are discarded even when nobody clicks.
+	 *
+	 * @see InventoryGUIManager#startLeakAuditTask(org.bukkit.plugin.java.JavaPlugin)
+	 */
+	public void sweep() {
+		long now = System.nanoTime();
+		Iterator<ClickState> stateIterator = states.values().iterator();
+		while (stateIterator.hasNext()) {
+			ClickState state = stateIterator.next();
+			synchronized (state) {
+				state.inFlight.values().removeIf(startedAt -> now - startedAt >= inFlightTimeoutNanos);
+				if (isIdle(state, now)) {
+					stateIterator.remove();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Checks if a click state no longer limits anything: the player's last click is older
+	 * than the debounce time and the rate window and none of their actions are in flight.
+	 * Must be called while synchronized on the state.
+	 *
+	 * @param state The click state.
+	 * @param now The current System.nanoTime().
+	 * @return true if the state can be discarded.
+	 */
+	private boolean isIdle(ClickState state, long now) {
+		return state.inFlight.isEmpty() && now - state.lastClick >= Math.max(debounceNanos, RATE_WINDOW_NANOS);
+	}
+
+	/**
+	 * Gets the number of players whose click state is kept.
+	 *
+	 * @return The tracked player count.
+	 */
+	int getTrackedPlayerCount() {
+		return states.size();
+	}
+
+	/**
+	 * Discards the click state of the player.
+	 *
+	 * @param playerID The UUID of the player.
+	 */
+	public void forget(UUID playerID) {
+		states.remove(playerID);
+	}
+
+	/**
+	 * Gets the number of clicks that were accepted.
+	 *
+	 * @return The accepted click count.
+	 */
+	public long getAccepted() {
+		return accepted.get();
+	}
+
+	/**
+	 * Gets the number of clicks dropped for repeating the previous click too quickly.
+	 *
+	 * @return The debounced click count.
+	 */
+	public long getDroppedDebounced() {
+		return droppedDebounced.get();
+	}
+
+	/**
+	 * Gets the number of clicks dropped for exceeding the click rate.
+	 *
+	 * @return The throttled click count.
+	 */
+	public long getDroppedThrottled() {
+		return droppedThrottled.get();
+	}
+
+	/**
+	 * Gets the number of clicks dropped because the matching action was still in flight.
+	 *
+	 * @return The in-flight dropped click count.
+	 */
+	public long getDroppedInFlight() {
+		return droppedInFlight.get();
+	}
+
+	/**
+	 * Gets the key an entry's in-flight action is tracked under.
+	 *
+	 * @param gui The GUI the entry is in.
+	 * @param entry The entry, may be null.
+	 * @return The entry for IDEMPOTENT entries, the GUI for EXCLUSIVE entries, null otherwise.
+	 */
+	private static Object getInFlightKey(InventoryGUI gui, InventoryGUIEntry entry) {
+		if (entry == null) {
+			return null;
+		}
+
+		switch (entry.getClickPolicy()) {
+			case IDEMPOTENT:
+				return entry;
+			case EXCLUSIVE:
+				return gui;
+			default:
+				return null;
+		}
+	}
+
+	/**
+	 * A player's click state.
+	 */
+	private static class ClickState {
+
+		/**
+		 * The GUI of the last click, weakly referenced so a closed GUI isn't retained.
+		 */
+		private WeakReference<InventoryGUI> lastGUI = new WeakReference<>(null);
+		private int lastSlot = -1;
+		private long lastClick = 0;
+		private long windowStart = 0;
+		private int windowClicks = 0;
+		/**
+		 * The keys of the actions in flight mapped to when they started.
+		 */
+		private final Map<Object, Long> inFlight = new IdentityHashMap<>();
+
+	}
+
+}
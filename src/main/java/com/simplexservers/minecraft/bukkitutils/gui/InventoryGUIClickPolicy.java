@@ -0,0 +1,25 @@
+package com.simplexservers.minecraft.bukkitutils.gui;
+
+/**
+ * How an entry's action handler treats repeated clicks while a previous action is still running.
+ *
+ * @see InventoryGUIClickLimiter
+ */
+public enum InventoryGUIClickPolicy {
+
+	/**
+	 * Every accepted click runs the action.
+	 */
+	DEFAULT,
+	/**
+	 * Running the action again gives the same result, so clicks on the entry
+	 * are skipped while the player's previous action for it is in flight.
+	 */
+	IDEMPOTENT,
+	/**
+	 * Only one exclusive action per player may be in flight in the GUI at a time,
+	 * clicks on exclusive entries are skipped until it completes.
+	 */
+	EXCLUSIVE
+
+}
@@ -1,7 +1,11 @@
 package com.simplexservers.minecraft.bukkitutils.gui;
 
+import org.bukkit.event.inventory.ClickType;
 import org.bukkit.inventory.ItemStack;
 
+import java.util.EnumMap;
+import java.util.Map;
+
 /**
  * Represents an entry in an IInventoryGUI.
  */
@@ -15,12 +19,73 @@ public class InventoryGUIEntry {
 	 * The custom value attached to the entry.
 	 */
 	private Object value;
+	/**
+	 * The handler for clicks without a click type specific handler, or null if there isn't one.
+	 */
+	private InventoryGUIClickHandler<Object> clickHandler = null;
+	/**
+	 * The handlers for specific click types, or null if there aren't any.
+	 */
+	private EnumMap<ClickType, InventoryGUIClickHandler<Object>> clickTypeHandlers = null;
+	/**
+	 * The handler for clicks whose action may complete later, or null if there isn't one.
+	 */
+	private InventoryGUIActionHandler<Object> actionHandler = null;
+	/**
+	 * How repeated clicks are treated while the action is in flight.
+	 */
+	private InventoryGUIClickPolicy clickPolicy = InventoryGUIClickPolicy.DEFAULT;
 
 	public InventoryGUIEntry(ItemStack stack, Object value) {
 		this.stack = stack;
 		this.value = value;
 	}
 
+	/**
+	 * Creates an entry that calls the handler when it is clicked.
+	 *
+	 * @param stack The Bukkit ItemStack in the inventory.
+	 * @param value The custom value attached to the entry.
+	 * @param clickHandler The handler called for any click on the entry.
+	 * @param <T> The type of the custom value.
+	 */
+	public <T> InventoryGUIEntry(ItemStack stack, T value, InventoryGUIClickHandler<? super T> clickHandler) {
+		this(stack, value);
+		this.clickHandler = eraseHandler(clickHandler);
+	}
+
+	/**
+	 * Creates an entry that calls the handler for the type of click when it is clicked.
+	 * Clicks of other types aren't handled by the entry.
+	 *
+	 * @param stack The Bukkit ItemStack in the inventory.
+	 * @param value The custom value attached to the entry.
+	 * @param clickHandlers The handlers keyed by the type of click they handle.
+	 * @param <T> The type of the custom value.
+	 */
+	public <T> InventoryGUIEntry(ItemStack stack, T value, Map<ClickType, ? extends InventoryGUIClickHandler<? super T>> clickHandlers) {
+		this(stack, value);
+		this.clickTypeHandlers = new EnumMap<>(ClickType.class);
+		clickHandlers.forEach((click, handler) -> clickTypeHandlers.put(click, eraseHandler(handler)));
+	}
+
+	/**
+	 * Creates an entry that runs the action when it is clicked, skipping
+	 * repeated clicks while the action is in flight as the policy describes.
+	 *
+	 * @param stack The Bukkit ItemStack in the inventory.
+	 * @param value The custom value attached to the entry.
+	 * @param clickPolicy How repeated clicks are treated while the action is in flight.
+	 * @param actionHandler The action run for any click on the entry.
+	 * @param <T> The type of the custom value.
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> InventoryGUIEntry(ItemStack stack, T value, InventoryGUIClickPolicy clickPolicy, InventoryGUIActionHandler<? super T> actionHandler) {
+		this(stack, value);
+		this.clickPolicy = clickPolicy;
+		this.actionHandler = (InventoryGUIActionHandler<Object>) (InventoryGUIActionHandler<?>) actionHandler;
+	}
+
 	/**
 	 * Gets the Bukkit ItemStack in the inventory.
 	 *
@@ -30,6 +95,22 @@ public class InventoryGUIEntry {
 		return stack;
 	}
 
+	/**
+	 * Creates a copy of the entry that shows a different item,
+	 * keeping the entry's value, click handlers, action handler and click policy.
+	 *
+	 * @param stack The Bukkit ItemStack to show instead.
+	 * @return The copied entry.
+	 */
+	public InventoryGUIEntry withItem(ItemStack stack) {
+		InventoryGUIEntry copy = new InventoryGUIEntry(stack, value);
+		copy.clickHandler = clickHandler;
+		copy.clickTypeHandlers = clickTypeHandlers; // Never modified after construction
+		copy.actionHandler = actionHandler;
+		copy.clickPolicy = clickPolicy;
+		return copy;
+	}
+
 	/**
 	 * Gets the custom value attached to the entry.
 	 *
@@ -39,4 +120,51 @@ public class InventoryGUIEntry {
 		return value;
 	}
 
+	/**
+	 * Gets the handler for the type of click on the entry.
+	 *
+	 * @param click The type of click.
+	 * @return The handler for the click, or null if the entry doesn't handle it.
+	 */
+	public InventoryGUIClickHandler<Object> getClickHandler(ClickType click) {
+		if (clickTypeHandlers != null) {
+			InventoryGUIClickHandler<Object> handler = clickTypeHandlers.get(click);
+			if (handler != null) {
+				return handler;
+			}
+		}
+
+		return clickHandler;
+	}
+
+	/**
+	 * Gets the handler for clicks whose action may complete later.
+	 *
+	 * @return The entry's action handler, or null if it doesn't have one.
+	 */
+	public InventoryGUIActionHandler<Object> getActionHandler() {
+		return actionHandler;
+	}
+
+	/**
+	 * Gets how repeated clicks are treated while the entry's action is in flight.
+	 *
+	 * @return The entry's click policy.
+	 */
+	public InventoryGUIClickPolicy getClickPolicy() {
+		return clickPolicy;
+	}
+
+	/**
+	 * Widens the handler to accept the entry's value as an Object.
+	 * Safe since the handler is only ever passed the value it was created with.
+	 *
+	 * @param handler The handler to widen.
+	 * @return The widened handler.
+	 */
+	@SuppressWarnings("unchecked")
+	private static InventoryGUIClickHandler<Object> eraseHandler(InventoryGUIClickHandler<?> handler) {
+		return (InventoryGUIClickHandler<Object>) handler;
+	}
+
 }
@@ -1,16 +1,20 @@
 package com.simplexservers.minecraft.bukkitutils.gui;
 
 import org.bukkit.Bukkit;
-import org.bukkit.entity.HumanEntity;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.inventory.*;
+import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.event.player.PlayerTeleportEvent;
 import org.bukkit.event.server.PluginDisableEvent;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.plugin.java.JavaPlugin;
 
+import java.util.UUID;
+import java.util.concurrent.CompletionStage;
+
 /**
  * The Bukkit listener to handle inventory GUI events.
  */
@@ -35,9 +39,14 @@ public class InventoryGUIListener implements Listener {
 	 *
 	 * @param event The Bukkit InventoryCloseEvent.
 	 */
-	@EventHandler
+	@EventHandler(priority = EventPriority.MONITOR)
 	public void onInventoryClose(InventoryCloseEvent event) {
-		guiManager.closeGUI((Player) event.getPlayer(), false);
+		Player player = (Player) event.getPlayer();
+		InventoryGUI gui = guiManager.getInventoryGUI(player);
+		// Only de-register if the closed inventory is the GUI's, not one being replaced by it
+		if (gui != null && gui.isInventory(event.getInventory())) {
+			guiManager.closeGUI(player, false);
+		}
 	}
 
 	/**
@@ -53,40 +62,113 @@ public class InventoryGUIListener implements Listener {
 		}
 	}
 
+	/**
+	 * Handles de-registering the open GUI when the player leaves the server.
+	 *
+	 * @param event The Bukkit PlayerQuitEvent.
+	 */
+	@EventHandler
+	public void onPlayerQuit(PlayerQuitEvent event) {
+		UUID playerID = event.getPlayer().getUniqueId();
+		InventoryGUI gui = guiManager.getInventoryGUI(playerID);
+		if (gui != null && gui.getClickLimiter() != null) {
+			gui.getClickLimiter().forget(playerID);
+		}
+
+		guiManager.closeGUI(event.getPlayer(), false);
+		guiManager.getClickLimiter().forget(playerID);
+	}
+
 	/**
 	 * Handles when a player selects an entry in the GUI.
 	 *
 	 * @param event The Bukkit InventoryClickEvent.
 	 */
-	@EventHandler
+	@EventHandler(priority = EventPriority.LOWEST)
 	public void onInventoryClick(InventoryClickEvent event) {
-		Player player = (Player) event.getWhoClicked();
-		InventoryGUI gui = guiManager.getInventoryGUI(player);
-		// Check if the player is actually in the GUI
-		if (gui != null && gui.isInventory(event.getClickedInventory())) {
-			event.setCancelled(true);
+		if (!guiManager.hasOpenGUIs()) {
+			return;
+		}
+
+		InventoryGUI gui = getGUI(event.getInventory());
+		if (gui == null) {
+			return;
+		}
+
+		// Cancel any click while the GUI is open so items can't be moved into it
+		event.setCancelled(true);
+
+		// Check if the click was actually in the GUI
+		if (gui.isInventory(event.getClickedInventory())) {
+			UUID playerID = event.getWhoClicked().getUniqueId();
+			int slot = event.getSlot();
+			InventoryGUIEntry selectedEntry = gui.getEntry(slot);
+
+			InventoryGUIClickLimiter limiter = gui.getClickLimiter() != null ? gui.getClickLimiter() : guiManager.getClickLimiter();
+			if (!limiter.tryAcquire(playerID, gui, slot, selectedEntry)) {
+				return;
+			}
+
+			CompletionStage<?> action = null;
+			try {
+				if (!gui.handleSelect(slot) && selectedEntry != null) {
+					action = dispatchSelect((Player) event.getWhoClicked(), gui, selectedEntry, event.getClick());
+				}
+			} finally {
+				if (action == null) {
+					limiter.release(playerID, gui, selectedEntry);
+				}
+			}
 
-			InventoryGUIEntry selectedEntry = gui.getEntry(event.getSlot());
-			if (selectedEntry != null) {
-				// Invoke the event
-				InventoryGUISelectEvent selectEvent = new InventoryGUISelectEvent(player, gui, selectedEntry);
-				Bukkit.getPluginManager().callEvent(selectEvent);
+			if (action != null) {
+				// Keep the action in flight until it completes
+				action.whenComplete((result, error) -> limiter.release(playerID, gui, selectedEntry));
 			}
 		}
 	}
 
+	/**
+	 * Dispatches the selection to the entry's action handler and the entry's or GUI's click handler,
+	 * then to the InventoryGUISelectEvent if the GUI has it enabled and anything listens for it.
+	 *
+	 * @param player The player that selected the entry.
+	 * @param gui The GUI the entry is in.
+	 * @param entry The selected entry.
+	 * @param click The type of click.
+	 * @return The stage of the entry's in-flight action, or null if there isn't one.
+	 */
+	private CompletionStage<?> dispatchSelect(Player player, InventoryGUI gui, InventoryGUIEntry entry, ClickType click) {
+		CompletionStage<?> action = null;
+		InventoryGUIActionHandler<Object> actionHandler = entry.getActionHandler();
+		if (actionHandler != null) {
+			action = actionHandler.onClick(player, gui, entry.getValue(), click);
+		}
+
+		InventoryGUIClickHandler<Object> handler = entry.getClickHandler(click);
+		if (handler == null && actionHandler == null) {
+			handler = gui.getClickHandler();
+		}
+		if (handler != null) {
+			handler.onClick(player, gui, entry.getValue(), click);
+		}
+
+		if (gui.isSelectEventEnabled() && InventoryGUISelectEvent.getHandlerList().getRegisteredListeners().length > 0) {
+			Bukkit.getPluginManager().callEvent(new InventoryGUISelectEvent(player, gui, entry));
+		}
+
+		return action;
+	}
+
 	/**
 	 * Handles preventing the player from interacting with the GUI inventory.
 	 *
 	 * @param event The Bukkit event.
 	 */
-	@EventHandler
+	@EventHandler(priority = EventPriority.LOWEST, ignoreCancelled = true)
 	public void onInventoryInteract(InventoryDragEvent event) {
-		Player player = (Player) event.getWhoClicked();
-		InventoryGUI gui = guiManager.getInventoryGUI(player);
-		if (gui != null) {
+		if (guiManager.hasOpenGUIs() && getGUI(event.getInventory()) != null) {
 			event.setCancelled(true);
-			player.updateInventory();
+			((Player) event.getWhoClicked()).updateInventory();
 		}
 	}
 
@@ -95,8 +177,12 @@ public class InventoryGUIListener implements Listener {
 	 *
 	 * @param event The Bukkit event.
 	 */
-	@EventHandler
+	@EventHandler(priority = EventPriority.LOWEST, ignoreCancelled = true)
 	public void onInventoryMove(InventoryMoveItemEvent event) {
+		if (!guiManager.hasOpenGUIs()) {
+			return;
+		}
+
 		if (isGUIInv(event.getSource()) || isGUIInv(event.getDestination())) {
 			event.setCancelled(true);
 		}
@@ -109,14 +195,19 @@ public class InventoryGUIListener implements Listener {
 	 * @return true if the inventory is a GUI inventory, false otherwise.
 	 */
 	private boolean isGUIInv(Inventory inv) {
-		for (HumanEntity viewer : inv.getViewers()) {
-			InventoryGUI gui = guiManager.getInventoryGUI((Player) viewer);
-			if (gui != null) {
-				return true;
-			}
-		}
+		// GUI inventories always have a viewer, skip resolving the holder of block inventories nobody is looking at
+		return !inv.getViewers().isEmpty() && getGUI(inv) != null;
+	}
 
-		return false;
+	/**
+	 * Gets the GUI managed by this listener's manager that holds the inventory.
+	 *
+	 * @param inv The inventory to get the GUI for.
+	 * @return The GUI holding the inventory, or null if it isn't one of the manager's GUIs.
+	 */
+	private InventoryGUI getGUI(Inventory inv) {
+		InventoryGUI gui = InventoryGUI.getGUI(inv);
+		return gui != null && gui.getManager() == guiManager ? gui : null;
 	}
 
 	/**
@@ -127,6 +218,7 @@ public class InventoryGUIListener implements Listener {
 	@EventHandler
 	public void onPluginDisable(PluginDisableEvent event) {
 		if (event.getPlugin().getName().equals(plugin.getName())) {
+			guiManager.stopLeakAuditTask();
 			Bukkit.getOnlinePlayers().forEach(guiManager::closeGUI);
 		}
 	}
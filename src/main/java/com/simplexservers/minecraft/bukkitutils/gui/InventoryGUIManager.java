@@ -1,18 +1,128 @@
 package com.simplexservers.minecraft.bukkitutils.gui;
 
+import com.simplexservers.minecraft.promptutils.Time;
+import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
+/**
+ * Tracks the InventoryGUIs open for each player.
+ * Lookups are thread-safe, so async code may check which GUI a player has open.
+ * Opening and closing GUIs must happen on the main thread.
+ */
 public class InventoryGUIManager {
 
-	private HashMap<Player, InventoryGUI> openGUIs = new HashMap<>();
+	/**
+	 * How often registrations are audited for players that no longer view their GUI.
+	 */
+	private static final Time LEAK_AUDIT_INTERVAL = new Time(1, Time.TimeUnit.MINUTE);
 
+	/**
+	 * The GUI each player has open, keyed by the player's UUID.
+	 */
+	private Map<UUID, InventoryGUI> openGUIs = new ConcurrentHashMap<>();
+	/**
+	 * The UUIDs of the players viewing each open GUI.
+	 */
+	private Map<InventoryGUI, Set<UUID>> guiViewers = new ConcurrentHashMap<>();
+	/**
+	 * The number of players with a GUI open, checked by the listener to skip work when there are none.
+	 */
+	private AtomicInteger openGUICount = new AtomicInteger();
+	/**
+	 * The repeating task to audit the open GUI registrations.
+	 */
+	private BukkitTask leakAuditTask = null;
+	/**
+	 * The GUI currently being opened, which must not be released while its viewers re-register.
+	 */
+	private InventoryGUI openingGUI = null;
+	/**
+	 * The GUIs with staged changes that have yet to be committed.
+	 */
+	private Set<InventoryGUI> dirtyGUIs = ConcurrentHashMap.newKeySet();
+	/**
+	 * The repeating task to refresh GUIs and commit staged GUI changes once per tick.
+	 */
+	private BukkitTask updateTask = null;
+	/**
+	 * The limiter for clicks in GUIs that don't have their own.
+	 */
+	private InventoryGUIClickLimiter clickLimiter = new InventoryGUIClickLimiter(0, 0);
+	/**
+	 * Runs the registered GUI refreshers from the update task.
+	 */
+	private InventoryGUIRefreshScheduler refreshScheduler = new InventoryGUIRefreshScheduler(guiViewers::containsKey);
+
+	/**
+	 * Opens the GUI for the player.
+	 *
+	 * @param player The player to open the GUI for.
+	 * @param gui The GUI to open.
+	 */
 	public void openGUI(Player player, InventoryGUI gui) {
-		openGUIs.put(player, gui);
-		player.openInventory(gui.getInventory());
+		// Opening the inventory closes the previous one, so register the GUI afterwards
+		InventoryGUI previousOpening = openingGUI;
+		openingGUI = gui;
+		try {
+			if (player.openInventory(gui.getInventory()) != null) {
+				UUID playerID = player.getUniqueId();
+				removeViewer(playerID);
+				if (openGUIs.put(playerID, gui) == null) {
+					openGUICount.incrementAndGet();
+				}
+				guiViewers.compute(gui, (key, viewers) -> {
+					if (viewers == null) {
+						viewers = ConcurrentHashMap.newKeySet();
+					}
+					viewers.add(playerID);
+					return viewers;
+				});
+			}
+		} finally {
+			openingGUI = previousOpening;
+		}
+	}
+
+	/**
+	 * Opens the placeholder GUI for the player immediately and fills it
+	 * with entries computed off of the main thread.
+	 * The entries are discarded if the player closes the GUI before they are ready.
+	 *
+	 * @param plugin The JavaPlugin to register the tasks under.
+	 * @param player The player to open the GUI for.
+	 * @param gui The GUI to open, showing placeholder entries until the entries are ready.
+	 * @param loader Computes the entries keyed by slot. Called asynchronously.
+	 * @return A future completed with the GUI once the entries are committed,
+	 *         or a cancelled future if the GUI could not be opened, such as when the open event was cancelled.
+	 * @see InventoryGUI#populateAsync(JavaPlugin, Supplier)
+	 */
+	public CompletableFuture<InventoryGUI> openGUIAsync(JavaPlugin plugin, Player player, InventoryGUI gui,
+	                                                    Supplier<Map<Integer, InventoryGUIEntry>> loader) {
+		openGUI(player, gui);
+		if (getInventoryGUI(player.getUniqueId()) != gui) {
+			// Nobody sees the GUI, don't run the loader for it
+			CompletableFuture<InventoryGUI> notOpened = new CompletableFuture<>();
+			notOpened.cancel(false);
+			return notOpened;
+		}
+
+		return gui.populateAsync(plugin, loader);
 	}
 
 	public void closeGUI(Player player) {
@@ -20,32 +130,304 @@ public class InventoryGUIManager {
 	}
 
 	public void closeGUI(Player player, boolean closeInventory) {
-		openGUIs.remove(player);
+		removeViewer(player.getUniqueId());
 		if (closeInventory) {
 			player.closeInventory();
 		}
 	}
 
 	public boolean isInGUI(Player player) {
-		return openGUIs.containsKey(player);
+		return isInGUI(player.getUniqueId());
+	}
+
+	/**
+	 * Gets if the player with the given UUID has a GUI open.
+	 * This method is thread-safe.
+	 *
+	 * @param playerID The UUID of the player.
+	 * @return true if the player has a GUI open, false otherwise.
+	 */
+	public boolean isInGUI(UUID playerID) {
+		return openGUIs.containsKey(playerID);
+	}
+
+	/**
+	 * Gets if any player has a GUI open.
+	 * This method is thread-safe.
+	 *
+	 * @return true if at least one GUI is open, false otherwise.
+	 */
+	public boolean hasOpenGUIs() {
+		return openGUICount.get() > 0;
 	}
 
 	public InventoryGUI getInventoryGUI(Player player) {
-		return openGUIs.get(player);
+		return getInventoryGUI(player.getUniqueId());
+	}
+
+	/**
+	 * Gets the GUI the player with the given UUID has open.
+	 * Returns null if the player doesn't have a GUI open.
+	 * This method is thread-safe.
+	 *
+	 * @param playerID The UUID of the player.
+	 * @return The GUI the player has open.
+	 */
+	public InventoryGUI getInventoryGUI(UUID playerID) {
+		return openGUIs.get(playerID);
 	}
 
+	/**
+	 * Gets the open GUIs keyed by the player viewing them.
+	 * Only GUIs of players that are online are included.
+	 *
+	 * @return A read-only snapshot of the open GUIs.
+	 * @deprecated Use {@link #getOpenGUIsById()}, which doesn't need to look up the players.
+	 */
+	@Deprecated
 	public Set<Map.Entry<Player, InventoryGUI>> getOpenGUIs() {
-		return openGUIs.entrySet();
+		Map<Player, InventoryGUI> guis = new HashMap<>();
+		for (Map.Entry<UUID, InventoryGUI> entry : openGUIs.entrySet()) {
+			Player player = Bukkit.getPlayer(entry.getKey());
+			if (player != null) {
+				guis.put(player, entry.getValue());
+			}
+		}
+		return Collections.unmodifiableMap(guis).entrySet();
+	}
+
+	/**
+	 * Gets the open GUIs keyed by the UUID of the player viewing them.
+	 *
+	 * @return A read-only view of the open GUIs.
+	 */
+	public Set<Map.Entry<UUID, InventoryGUI>> getOpenGUIsById() {
+		return Collections.unmodifiableMap(openGUIs).entrySet();
 	}
 
+	/**
+	 * Gets the online players that are viewing the GUI.
+	 *
+	 * @param gui The GUI to get the viewers of.
+	 * @return The players viewing the GUI.
+	 */
+	public Collection<Player> getViewers(InventoryGUI gui) {
+		Set<UUID> viewerIDs = guiViewers.get(gui);
+		if (viewerIDs == null) {
+			return Collections.emptyList();
+		}
+
+		ArrayList<Player> viewers = new ArrayList<>(viewerIDs.size());
+		for (UUID viewerID : viewerIDs) {
+			Player viewer = Bukkit.getPlayer(viewerID);
+			if (viewer != null) {
+				viewers.add(viewer);
+			}
+		}
+		return viewers;
+	}
+
+	/**
+	 * Re-opens the GUI for every player viewing it.
+	 * Used when the GUI's Bukkit inventory has been replaced.
+	 *
+	 * @param gui The GUI to re-open.
+	 */
 	public void reopenGUI(InventoryGUI gui) {
-		openGUIs.entrySet().stream()
-				.filter(entry -> entry.getValue().equals(gui))
-				.forEach(entry -> {
-			Player player = entry.getKey();
-			player.closeInventory();
-			player.openInventory(gui.getInventory());
-		});
+		// Re-opening fires close events that modify the viewers, getViewers returns a copy
+		getViewers(gui).forEach(player -> openGUI(player, gui));
+	}
+
+	/**
+	 * Starts the repeating task that removes registrations for players
+	 * that are offline or no longer looking at their GUI,
+	 * and sweeps the idle click states of the default click limiter.
+	 *
+	 * @param plugin The JavaPlugin to register the task under.
+	 */
+	public void startLeakAuditTask(JavaPlugin plugin) {
+		stopLeakAuditTask();
+		leakAuditTask = new BukkitRunnable() {
+			@Override
+			public void run() {
+				int removed = auditOpenGUIs();
+				if (removed > 0) {
+					plugin.getLogger().warning("Removed " + removed + " stale inventory GUI registration(s).");
+				}
+				clickLimiter.sweep();
+			}
+		}.runTaskTimer(plugin, LEAK_AUDIT_INTERVAL.getSeconds() * 20L, LEAK_AUDIT_INTERVAL.getSeconds() * 20L);
+	}
+
+	/**
+	 * Stops the repeating leak audit task from running.
+	 */
+	public void stopLeakAuditTask() {
+		if (leakAuditTask != null) {
+			leakAuditTask.cancel();
+			leakAuditTask = null;
+		}
+	}
+
+	/**
+	 * Gets the limiter for clicks in GUIs that don't have their own.
+	 * By default clicks are not debounced or throttled.
+	 *
+	 * @return The default click limiter.
+	 */
+	public InventoryGUIClickLimiter getClickLimiter() {
+		return clickLimiter;
+	}
+
+	/**
+	 * Sets the limiter for clicks in GUIs that don't have their own.
+	 *
+	 * @param clickLimiter The default click limiter.
+	 */
+	public void setClickLimiter(InventoryGUIClickLimiter clickLimiter) {
+		this.clickLimiter = clickLimiter;
+	}
+
+	/**
+	 * Registers a refresher that updates the GUI's content every period while the update task is running.
+	 * The refresher is only called while the GUI has viewers, once per refresh no matter how many
+	 * players view it. The registration is removed once the GUI's last viewer closes it,
+	 * or once the GUI has gone a full period without viewers, such as when it is never opened.
+	 * Replaces any refresher already registered for the GUI.
+	 * Must be called from the main thread.
+	 *
+	 * @param gui The GUI to refresh.
+	 * @param periodTicks How often, in ticks, the GUI is refreshed.
+	 * @param refresher Refreshes the GUI's content.
+	 * @see #startUpdateTask(JavaPlugin)
+	 */
+	public void registerRefresher(InventoryGUI gui, long periodTicks, InventoryGUIRefresher refresher) {
+		refreshScheduler.register(gui, periodTicks, refresher);
+	}
+
+	/**
+	 * Unregisters the refresher for the GUI, if it has one.
+	 * Must be called from the main thread.
+	 *
+	 * @param gui The GUI to stop refreshing.
+	 */
+	public void unregisterRefresher(InventoryGUI gui) {
+		refreshScheduler.unregister(gui);
+	}
+
+	/**
+	 * Sets how long refreshers may run each tick before the remaining
+	 * refreshes are pushed to the following ticks.
+	 *
+	 * @param budgetNanos The time budget per tick in nanoseconds.
+	 */
+	public void setRefreshBudget(long budgetNanos) {
+		refreshScheduler.setTickBudgetNanos(budgetNanos);
+	}
+
+	/**
+	 * Starts the task that runs due GUI refreshers and then commits
+	 * the staged changes of every GUI once per tick.
+	 * While it is running, changes staged with {@link InventoryGUI#stageEntry(int, InventoryGUIEntry)}
+	 * don't need to be committed by hand.
+	 *
+	 * @param plugin The JavaPlugin to register the task under.
+	 */
+	public void startUpdateTask(JavaPlugin plugin) {
+		stopUpdateTask();
+		updateTask = new BukkitRunnable() {
+			@Override
+			public void run() {
+				refreshScheduler.tick();
+				commitDirtyGUIs();
+			}
+		}.runTaskTimer(plugin, 1L, 1L);
+	}
+
+	/**
+	 * Stops the repeating update task from running.
+	 */
+	public void stopUpdateTask() {
+		if (updateTask != null) {
+			updateTask.cancel();
+			updateTask = null;
+		}
+	}
+
+	/**
+	 * Commits the staged changes of every GUI that has them.
+	 * Must be called from the main thread.
+	 */
+	public void commitDirtyGUIs() {
+		if (dirtyGUIs.isEmpty()) {
+			return;
+		}
+
+		Iterator<InventoryGUI> dirtyIterator = dirtyGUIs.iterator();
+		while (dirtyIterator.hasNext()) {
+			InventoryGUI gui = dirtyIterator.next();
+			dirtyIterator.remove();
+			gui.commitChanges();
+		}
+	}
+
+	/**
+	 * Marks the GUI as having staged changes to commit on the next update.
+	 *
+	 * @param gui The GUI with staged changes.
+	 */
+	void markDirty(InventoryGUI gui) {
+		dirtyGUIs.add(gui);
+	}
+
+	/**
+	 * Removes the GUI from the GUIs with staged changes once they have been committed or discarded.
+	 *
+	 * @param gui The GUI without staged changes.
+	 */
+	void clearDirty(InventoryGUI gui) {
+		dirtyGUIs.remove(gui);
+	}
+
+	/**
+	 * Removes registrations for players that are offline or whose
+	 * open inventory is no longer their GUI.
+	 * Must be called from the main thread.
+	 *
+	 * @return The number of registrations removed.
+	 */
+	public int auditOpenGUIs() {
+		int removed = 0;
+		for (Map.Entry<UUID, InventoryGUI> entry : openGUIs.entrySet()) {
+			Player player = Bukkit.getPlayer(entry.getKey());
+			if (player == null || !entry.getValue().isInventory(player.getOpenInventory().getTopInventory())) {
+				removeViewer(entry.getKey());
+				removed++;
+			}
+		}
+		return removed;
+	}
+
+	/**
+	 * Removes the player as a viewer of the GUI they have open.
+	 *
+	 * @param playerID The UUID of the player to remove.
+	 */
+	private void removeViewer(UUID playerID) {
+		InventoryGUI gui = openGUIs.remove(playerID);
+		if (gui != null) {
+			openGUICount.decrementAndGet();
+			boolean[] lastViewer = {false};
+			guiViewers.computeIfPresent(gui, (key, viewers) -> {
+				viewers.remove(playerID);
+				return (lastViewer[0] = viewers.isEmpty()) ? null : viewers;
+			});
+
+			if (lastViewer[0] && gui != openingGUI) {
+				refreshScheduler.unregister(gui);
+				gui.onAllViewersClosed();
+			}
+		}
 	}
 
 }
@@ -0,0 +1,30 @@
+package com.simplexservers.minecraft.bukkitutils.gui;
+
+import java.util.List;
+
+/**
+ * A lazy source of entries for a PagedInventoryGUI.
+ * Entries are only requested for the pages that are shown or about to be shown,
+ * so sources should create the entries' ItemStacks on demand.
+ *
+ * Implementations must be thread-safe, pages are loaded asynchronously.
+ */
+public interface InventoryGUIPageSource {
+
+	/**
+	 * Gets the total number of entries in the source.
+	 *
+	 * @return The number of entries.
+	 */
+	int size();
+
+	/**
+	 * Gets a range of entries from the source.
+	 *
+	 * @param offset The index of the first entry to get.
+	 * @param count The maximum number of entries to get.
+	 * @return The entries in the range, which may be fewer than count at the end of the source.
+	 */
+	List<InventoryGUIEntry> getEntries(int offset, int count);
+
+}
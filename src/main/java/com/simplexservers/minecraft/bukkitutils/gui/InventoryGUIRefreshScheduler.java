@@ -0,0 +1,155 @@
+package com.simplexservers.minecraft.bukkitutils.gui;
+
+import org.bukkit.Bukkit;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+
+/**
+ * Runs the registered GUI refreshers from a single per-tick task.
+ *
+ * Refreshes are queued by the tick they are due. Each tick only runs due refreshes
+ * until the time budget is spent, leaving the rest for the following ticks,
+ * and new registrations are staggered so refreshes with the same rate don't all land on one tick.
+ * Registrations whose GUI has had no viewers for a full period, such as GUIs that were never opened,
+ * are dropped when they are next due.
+ * Must only be used from the main thread.
+ */
+class InventoryGUIRefreshScheduler {
+
+	/**
+	 * The default time, in nanoseconds, refreshes may take each tick.
+	 */
+	static final long DEFAULT_TICK_BUDGET_NANOS = 2_000_000L;
+
+	/**
+	 * The refreshes queued by the tick they are due.
+	 */
+	private final PriorityQueue<Registration> queue = new PriorityQueue<>(
+			(first, second) -> Long.compare(first.nextRunTick, second.nextRunTick));
+	/**
+	 * The registration for each GUI.
+	 */
+	private final Map<InventoryGUI, Registration> registrations = new HashMap<>();
+	/**
+	 * Checks if a GUI has any viewers.
+	 */
+	private final Predicate<InventoryGUI> hasViewers;
+	/**
+	 * The time, in nanoseconds, refreshes may take each tick.
+	 */
+	private long tickBudgetNanos = DEFAULT_TICK_BUDGET_NANOS;
+	/**
+	 * The number of ticks the scheduler has run.
+	 */
+	private long currentTick = 0;
+	/**
+	 * The number of registrations made, used to stagger them.
+	 */
+	private long registrationCount = 0;
+
+	InventoryGUIRefreshScheduler(Predicate<InventoryGUI> hasViewers) {
+		this.hasViewers = hasViewers;
+	}
+
+	/**
+	 * Registers the refresher for the GUI, replacing any existing one.
+	 *
+	 * @param gui The GUI to refresh.
+	 * @param periodTicks How often, in ticks, the GUI is refreshed.
+	 * @param refresher Refreshes the GUI's content.
+	 */
+	void register(InventoryGUI gui, long periodTicks, InventoryGUIRefresher refresher) {
+		if (periodTicks <= 0) {
+			throw new IllegalArgumentException("Invalid period '" + periodTicks + "'. Must be positive");
+		}
+
+		unregister(gui);
+		Registration registration = new Registration(gui, periodTicks, refresher);
+		registration.nextRunTick = currentTick + 1 + (registrationCount++ % periodTicks);
+		registration.lastViewedTick = currentTick;
+		registrations.put(gui, registration);
+		queue.add(registration);
+	}
+
+	/**
+	 * Unregisters the refresher for the GUI, if it has one.
+	 *
+	 * @param gui The GUI to stop refreshing.
+	 */
+	void unregister(InventoryGUI gui) {
+		Registration registration = registrations.remove(gui);
+		if (registration != null) {
+			registration.cancelled = true; // Lazily removed from the queue
+		}
+	}
+
+	void setTickBudgetNanos(long tickBudgetNanos) {
+		this.tickBudgetNanos = tickBudgetNanos;
+	}
+
+	/**
+	 * Runs the refreshes that are due, within the tick's time budget.
+	 * Due registrations whose GUI has had no viewers for a full period are unregistered.
+	 */
+	void tick() {
+		currentTick++;
+		long start = System.nanoTime();
+
+		Registration registration;
+		while ((registration = queue.peek()) != null && registration.nextRunTick <= currentTick) {
+			queue.poll();
+			if (registration.cancelled) {
+				continue;
+			}
+
+			if (hasViewers.test(registration.gui)) {
+				registration.lastViewedTick = currentTick;
+			} else if (currentTick - registration.lastViewedTick >= registration.periodTicks) {
+				registrations.remove(registration.gui); // Never opened, or its viewers are gone
+				continue;
+			}
+
+			registration.nextRunTick = currentTick + registration.periodTicks;
+			queue.add(registration);
+
+			if (registration.lastViewedTick != currentTick) {
+				continue; // Nobody to show the content to
+			}
+
+			try {
+				registration.refresher.refresh(registration.gui);
+			} catch (RuntimeException e) {
+				Bukkit.getLogger().log(Level.WARNING, "An error occurred refreshing an inventory GUI.", e);
+			}
+
+			if (System.nanoTime() - start >= tickBudgetNanos) {
+				break; // Leave the remaining refreshes for the next tick
+			}
+		}
+	}
+
+	/**
+	 * A GUI's refresher registration.
+	 */
+	private static class Registration {
+
+		private final InventoryGUI gui;
+		private final long periodTicks;
+		private final InventoryGUIRefresher refresher;
+		private long nextRunTick;
+		private long lastViewedTick;
+		private boolean cancelled = false;
+
+		private Registration(InventoryGUI gui, long periodTicks, InventoryGUIRefresher refresher) {
+			this.gui = gui;
+			this.periodTicks = periodTicks;
+			this.refresher = refresher;
+		}
+
+	}
+
+}
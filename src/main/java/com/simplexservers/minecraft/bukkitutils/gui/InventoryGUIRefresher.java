@@ -0,0 +1,21 @@
+package com.simplexservers.minecraft.bukkitutils.gui;
+
+/**
+ * Refreshes the content of an InventoryGUI on a schedule.
+ *
+ * @see InventoryGUIManager#registerRefresher(InventoryGUI, long, InventoryGUIRefresher)
+ */
+@FunctionalInterface
+public interface InventoryGUIRefresher {
+
+	/**
+	 * Refreshes the GUI's content.
+	 * Called on the main thread once per refresh for the GUI, no matter how many players view it.
+	 * Changes should be staged with {@link InventoryGUI#stageEntry(int, InventoryGUIEntry)},
+	 * they are committed together after the refresh.
+	 *
+	 * @param gui The GUI being refreshed.
+	 */
+	void refresh(InventoryGUI gui);
+
+}
@@ -0,0 +1,190 @@
+package com.simplexservers.minecraft.bukkitutils.gui;
+
+import org.bukkit.inventory.ItemStack;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+
+/**
+ * An immutable, precomputed inventory GUI layout that per-player
+ * InventoryGUIs are stamped from.
+ *
+ * Stamped GUIs share the template's entries and ItemStacks and only
+ * hold their own entries for the slots that were changed. If the template
+ * has a pool, GUIs created with {@link #createPooledGUI()} are reset and kept for reuse
+ * once all of their viewers have closed them. GUIs created with {@link #createGUI()}
+ * are never pooled, so references to them may safely outlive their viewers.
+ *
+ * Templates must only be used from the main thread.
+ */
+public class InventoryGUITemplate {
+
+	/**
+	 * The InventoryGUIManager the stamped GUIs are children of.
+	 */
+	private final InventoryGUIManager manager;
+	/**
+	 * The title of the inventory.
+	 */
+	private final String title;
+	/**
+	 * The entries of the layout.
+	 */
+	private final SlotTable layout;
+	/**
+	 * The items of the layout indexed by slot, sized to the inventory.
+	 */
+	private final ItemStack[] contents;
+	/**
+	 * The maximum number of closed GUIs kept for reuse.
+	 */
+	private final int poolSize;
+	/**
+	 * The closed GUIs available for reuse.
+	 */
+	private final ArrayDeque<InventoryGUI> pool;
+
+	InventoryGUITemplate(InventoryGUIManager manager, String title, SlotTable layout, int poolSize) {
+		if (poolSize < 0) {
+			throw new IllegalArgumentException("Invalid pool size '" + poolSize + "'. Must not be negative");
+		}
+
+		this.manager = manager;
+		this.title = title;
+		this.layout = layout;
+		this.poolSize = poolSize;
+		this.pool = new ArrayDeque<>(poolSize);
+
+		contents = new ItemStack[InventoryGUI.getInventorySize(layout.getHighestSlot())];
+		for (int slot = layout.nextSlot(0); slot >= 0; slot = layout.nextSlot(slot + 1)) {
+			contents[slot] = layout.get(slot).getItemStack();
+		}
+	}
+
+	/**
+	 * Creates a GUI with the template's layout.
+	 * The GUI is never pooled.
+	 *
+	 * @return The stamped GUI.
+	 */
+	public InventoryGUI createGUI() {
+		return new InventoryGUI(this, false);
+	}
+
+	/**
+	 * Creates a GUI with the template's layout, replacing the given slots.
+	 * The GUI is never pooled.
+	 *
+	 * @param entries The entries to put in the GUI keyed by slot.
+	 *                A null entry leaves the slot empty.
+	 * @return The stamped GUI.
+	 */
+	public InventoryGUI createGUI(Map<Integer, InventoryGUIEntry> entries) {
+		return applyEntries(createGUI(), entries);
+	}
+
+	/**
+	 * Creates a GUI with the template's layout, reusing a pooled GUI if there is one.
+	 * The GUI is reset and handed to another caller once all of its viewers have closed it,
+	 * so no reference to it may be kept or used after that, including by refreshers and async tasks.
+	 *
+	 * @return The stamped GUI.
+	 */
+	public InventoryGUI createPooledGUI() {
+		InventoryGUI gui = pool.poll();
+		return gui != null ? gui : new InventoryGUI(this, true);
+	}
+
+	/**
+	 * Creates a GUI with the template's layout, replacing the given slots,
+	 * reusing a pooled GUI if there is one.
+	 *
+	 * @param entries The entries to put in the GUI keyed by slot.
+	 *                A null entry leaves the slot empty.
+	 * @return The stamped GUI.
+	 * @see #createPooledGUI()
+	 */
+	public InventoryGUI createPooledGUI(Map<Integer, InventoryGUIEntry> entries) {
+		return applyEntries(createPooledGUI(), entries);
+	}
+
+	/**
+	 * Replaces the given slots of the stamped GUI.
+	 *
+	 * @param gui The stamped GUI.
+	 * @param entries The entries to put in the GUI keyed by slot.
+	 * @return The stamped GUI.
+	 */
+	private static InventoryGUI applyEntries(InventoryGUI gui, Map<Integer, InventoryGUIEntry> entries) {
+		entries.forEach((slot, entry) -> {
+			if (entry == null) {
+				gui.stageRemoval(slot);
+			} else {
+				gui.stageEntry(slot, entry);
+			}
+		});
+		gui.commitChanges();
+		return gui;
+	}
+
+	/**
+	 * Gets the number of closed GUIs available for reuse.
+	 *
+	 * @return The number of pooled GUIs.
+	 */
+	public int getPooledCount() {
+		return pool.size();
+	}
+
+	/**
+	 * Resets the closed GUI and keeps it for reuse if the pool has room.
+	 *
+	 * @param gui The GUI that was closed.
+	 */
+	void release(InventoryGUI gui) {
+		if (pool.size() < poolSize && gui.resetToTemplate()) {
+			pool.push(gui);
+		}
+	}
+
+	InventoryGUIManager getManager() {
+		return manager;
+	}
+
+	String getTitle() {
+		return title;
+	}
+
+	int getSize() {
+		return contents.length;
+	}
+
+	/**
+	 * Gets the layout's entry for the slot.
+	 *
+	 * @param slot The slot to get the entry for.
+	 * @return The entry, or null if the layout leaves the slot empty.
+	 */
+	InventoryGUIEntry getEntry(int slot) {
+		return layout.get(slot);
+	}
+
+	/**
+	 * Copies the layout for a stamped GUI to modify.
+	 *
+	 * @return A copy of the layout.
+	 */
+	SlotTable copyLayout() {
+		return layout.copy();
+	}
+
+	/**
+	 * Gets the layout's items. The array is shared and must not be modified.
+	 *
+	 * @return The items indexed by slot.
+	 */
+	ItemStack[] getContents() {
+		return contents;
+	}
+
+}
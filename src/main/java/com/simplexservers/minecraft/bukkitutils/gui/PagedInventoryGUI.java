@@ -0,0 +1,304 @@
+package com.simplexservers.minecraft.bukkitutils.gui;
+
+import org.bukkit.Bukkit;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+
+/**
+ * An inventory GUI that shows a large set of entries one page at a time.
+ *
+ * The GUI has a fixed viewport of content rows with a navigation row below it.
+ * Entries are pulled from an InventoryGUIPageSource only for the shown page
+ * and the pages next to it, which are prefetched asynchronously.
+ * Flipping pages updates only the slots that changed in place,
+ * so viewers never have the inventory closed and re-opened.
+ */
+public class PagedInventoryGUI extends InventoryGUI {
+
+	/**
+	 * The values of the navigation entries.
+	 */
+	private enum Navigation {
+		PREVIOUS, NEXT, RETRY
+	}
+
+	/**
+	 * The JavaPlugin to register page loading tasks under.
+	 */
+	private final JavaPlugin plugin;
+	/**
+	 * The source of the paged entries.
+	 */
+	private final InventoryGUIPageSource source;
+	/**
+	 * The number of entries shown on a page.
+	 */
+	private final int pageSize;
+	/**
+	 * The entry shown to go to the previous page.
+	 */
+	private final InventoryGUIEntry previousEntry;
+	/**
+	 * The entry shown to go to the next page.
+	 */
+	private final InventoryGUIEntry nextEntry;
+	/**
+	 * The entry shown in place of a page that could not be loaded, or null to leave the page empty.
+	 */
+	private InventoryGUIEntry loadErrorEntry = null;
+	/**
+	 * The loaded pages around the current page, keyed by page index.
+	 */
+	private final Map<Integer, List<InventoryGUIEntry>> pageCache = new HashMap<>();
+	/**
+	 * The pages currently being loaded.
+	 */
+	private final Set<Integer> loadingPages = new HashSet<>();
+	/**
+	 * Incremented when the cache is invalidated so in-flight loads are discarded.
+	 */
+	private int cacheGeneration = 0;
+	/**
+	 * The page currently shown.
+	 */
+	private int page = 0;
+	/**
+	 * The page that should be shown once it is loaded.
+	 */
+	private int requestedPage = 0;
+
+	/**
+	 * Creates a PagedInventoryGUI showing the first page of the source.
+	 * Must be called from the main thread.
+	 *
+	 * @param plugin The JavaPlugin to register page loading tasks under.
+	 * @param manager The InventoryGUIManager the GUI is a child of.
+	 * @param title The title of the inventory.
+	 * @param rows The number of content rows in the viewport, from 1 to 5.
+	 * @param source The source of the paged entries.
+	 * @param previousItem The item shown to go to the previous page.
+	 * @param nextItem The item shown to go to the next page.
+	 */
+	public PagedInventoryGUI(JavaPlugin plugin, InventoryGUIManager manager, String title, int rows,
+	                         InventoryGUIPageSource source, ItemStack previousItem, ItemStack nextItem) {
+		super(manager, title, checkRows(rows) * 9 + 9);
+		this.plugin = plugin;
+		this.source = source;
+		this.pageSize = rows * 9;
+		this.previousEntry = new InventoryGUIEntry(previousItem, Navigation.PREVIOUS);
+		this.nextEntry = new InventoryGUIEntry(nextItem, Navigation.NEXT);
+
+		showPage(0);
+	}
+
+	/**
+	 * Gets the index of the page currently shown.
+	 *
+	 * @return The current page index.
+	 */
+	public int getPage() {
+		return page;
+	}
+
+	/**
+	 * Gets the number of pages in the source.
+	 *
+	 * @return The number of pages, at least 1.
+	 */
+	public int getPageCount() {
+		return Math.max(1, (source.size() + pageSize - 1) / pageSize);
+	}
+
+	/**
+	 * Sets the item shown in the middle of a page that could not be loaded.
+	 * Clicking the item retries loading the page.
+	 *
+	 * @param loadErrorItem The item to show, or null to leave the page empty.
+	 */
+	public void setLoadErrorItem(ItemStack loadErrorItem) {
+		this.loadErrorEntry = loadErrorItem == null ? null : new InventoryGUIEntry(loadErrorItem, Navigation.RETRY);
+	}
+
+	/**
+	 * Shows the given page. If the page isn't loaded yet it is shown once it is.
+	 * A page that failed to load is loaded again when it is shown.
+	 * Must be called from the main thread.
+	 *
+	 * @param page The index of the page to show.
+	 */
+	public void showPage(int page) {
+		requestedPage = Math.max(0, Math.min(page, getPageCount() - 1));
+
+		List<InventoryGUIEntry> entries = pageCache.get(requestedPage);
+		if (entries != null) {
+			applyPage(requestedPage, entries);
+		} else {
+			loadPage(requestedPage);
+		}
+
+		// Prefetch the adjacent pages
+		if (requestedPage > 0) {
+			loadPage(requestedPage - 1);
+		}
+		if (requestedPage < getPageCount() - 1) {
+			loadPage(requestedPage + 1);
+		}
+	}
+
+	/**
+	 * Discards the loaded pages and reloads the requested page from the source.
+	 * Used when the source's entries have changed.
+	 * Must be called from the main thread.
+	 */
+	public void refresh() {
+		cacheGeneration++;
+		pageCache.clear();
+		loadingPages.clear();
+		showPage(requestedPage);
+	}
+
+	@Override
+	void onAllViewersClosed() {
+		super.onAllViewersClosed();
+		// Discard the pages still loading like a pending population, showing a page again reloads it
+		cacheGeneration++;
+		loadingPages.clear();
+	}
+
+	@Override
+	boolean handleSelect(int slot) {
+		InventoryGUIEntry entry = getEntry(slot);
+		if (entry == previousEntry) {
+			showPage(page - 1);
+			return true;
+		} else if (entry == nextEntry) {
+			showPage(page + 1);
+			return true;
+		} else if (entry != null && entry == loadErrorEntry) {
+			showPage(requestedPage);
+			return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Loads the page from the source asynchronously if it isn't loaded or loading.
+	 *
+	 * @param page The index of the page to load.
+	 */
+	private void loadPage(int page) {
+		if (pageCache.containsKey(page) || !loadingPages.add(page)) {
+			return;
+		}
+
+		int generation = cacheGeneration;
+		Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+			List<InventoryGUIEntry> entries;
+			try {
+				entries = source.getEntries(page * pageSize, pageSize);
+			} catch (Throwable t) {
+				// Any failure must clear the loading page, or it could never be loaded again
+				plugin.getLogger().log(Level.WARNING, "Could not load page " + page + " of the inventory GUI.", t);
+				Bukkit.getScheduler().runTask(plugin, () -> {
+					if (generation != cacheGeneration) {
+						return; // The cache was invalidated while loading
+					}
+
+					// The page isn't cached, so showing it again retries the load
+					loadingPages.remove(page);
+					if (page == requestedPage) {
+						showLoadError(page);
+					}
+				});
+				return;
+			}
+
+			Bukkit.getScheduler().runTask(plugin, () -> {
+				if (generation != cacheGeneration) {
+					return; // The cache was invalidated while loading
+				}
+
+				loadingPages.remove(page);
+				pageCache.put(page, entries);
+				if (page == requestedPage) {
+					applyPage(page, entries);
+				}
+			});
+		});
+	}
+
+	/**
+	 * Shows the error entry, if there is one, in place of the page's entries.
+	 *
+	 * @param page The index of the page that could not be loaded.
+	 */
+	private void showLoadError(int page) {
+		List<InventoryGUIEntry> entries = new ArrayList<>(pageSize);
+		if (loadErrorEntry != null) {
+			// Center the entry in the viewport
+			int rows = pageSize / 9;
+			int errorSlot = (rows / 2) * 9 + 4;
+			entries.addAll(Collections.nCopies(errorSlot, null));
+			entries.add(loadErrorEntry);
+		}
+		applyPage(page, entries);
+	}
+
+	/**
+	 * Shows the loaded page, only updating the slots that changed.
+	 *
+	 * @param page The index of the page being shown.
+	 * @param entries The entries on the page.
+	 */
+	private void applyPage(int page, List<InventoryGUIEntry> entries) {
+		this.page = page;
+
+		Map<Integer, InventoryGUIEntry> changes = new HashMap<>();
+		for (int slot = 0; slot < pageSize; slot++) {
+			InventoryGUIEntry entry = slot < entries.size() ? entries.get(slot) : null;
+			if (getEntry(slot) != entry) {
+				changes.put(slot, entry);
+			}
+		}
+
+		InventoryGUIEntry previous = page > 0 ? previousEntry : null;
+		if (getEntry(pageSize) != previous) {
+			changes.put(pageSize, previous);
+		}
+		InventoryGUIEntry next = page < getPageCount() - 1 ? nextEntry : null;
+		if (getEntry(pageSize + 8) != next) {
+			changes.put(pageSize + 8, next);
+		}
+
+		if (!changes.isEmpty()) {
+			updateEntries(changes);
+		}
+
+		// Only keep the pages that could be flipped to next
+		pageCache.keySet().removeIf(cachedPage -> Math.abs(cachedPage - page) > 1);
+	}
+
+	/**
+	 * Validates the number of content rows.
+	 *
+	 * @param rows The number of content rows.
+	 * @return The number of content rows.
+	 */
+	private static int checkRows(int rows) {
+		if (rows < 1 || rows > 5) {
+			throw new IllegalArgumentException("Invalid rows '" + rows + "'. Must be between 1 and 5");
+		}
+		return rows;
+	}
+
+}
@@ -0,0 +1,170 @@
+package com.simplexservers.minecraft.bukkitutils.gui;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A dense, array backed table of the entries in an inventory GUI.
+ * Slot lookups are a bounds check and an array read, and
+ * value lookups go through a reverse index of value to slots.
+ */
+class SlotTable {
+
+	/**
+	 * The maximum number of slots a chest inventory can hold.
+	 */
+	static final int MAX_SLOTS = 54;
+
+	/**
+	 * The entries indexed by their slot.
+	 */
+	private final InventoryGUIEntry[] entries = new InventoryGUIEntry[MAX_SLOTS];
+	/**
+	 * The slots that currently hold an entry.
+	 */
+	private final BitSet occupied = new BitSet(MAX_SLOTS);
+	/**
+	 * The slots holding each custom entry value.
+	 */
+	private final Map<Object, BitSet> valueSlots = new HashMap<>();
+
+	/**
+	 * Gets the entry at the given slot.
+	 * Returns null if there is not an entry for the slot.
+	 *
+	 * @param slot The slot to get the entry for.
+	 * @return The entry at the slot.
+	 */
+	InventoryGUIEntry get(int slot) {
+		return slot >= 0 && slot < MAX_SLOTS ? entries[slot] : null;
+	}
+
+	/**
+	 * Puts the entry at the given slot.
+	 *
+	 * @param slot The slot to put the entry at.
+	 * @param entry The entry to put in the slot.
+	 * @return The entry that was previously at the slot, or null if there wasn't one.
+	 */
+	InventoryGUIEntry put(int slot, InventoryGUIEntry entry) {
+		checkSlot(slot);
+		if (entry == null) {
+			return remove(slot);
+		}
+
+		InventoryGUIEntry previous = entries[slot];
+		if (previous != null) {
+			unindex(slot, previous);
+		}
+
+		entries[slot] = entry;
+		occupied.set(slot);
+		valueSlots.computeIfAbsent(entry.getValue(), val -> new BitSet(MAX_SLOTS)).set(slot);
+		return previous;
+	}
+
+	/**
+	 * Removes the entry at the given slot.
+	 *
+	 * @param slot The slot to remove the entry at.
+	 * @return The entry that was removed, or null if there wasn't one.
+	 */
+	InventoryGUIEntry remove(int slot) {
+		if (slot < 0 || slot >= MAX_SLOTS) {
+			return null;
+		}
+
+		InventoryGUIEntry previous = entries[slot];
+		if (previous != null) {
+			unindex(slot, previous);
+			entries[slot] = null;
+			occupied.clear(slot);
+		}
+
+		return previous;
+	}
+
+	/**
+	 * Gets the slots whose entry holds the given custom value.
+	 * The returned set is a copy and may be modified freely.
+	 *
+	 * @param value The custom value to get the slots for.
+	 * @return The slots holding the value.
+	 */
+	BitSet getSlotsWithValue(Object value) {
+		BitSet slots = valueSlots.get(value);
+		return slots == null ? new BitSet() : (BitSet) slots.clone();
+	}
+
+	/**
+	 * Creates a copy of the table that shares the same entries.
+	 *
+	 * @return The copied table.
+	 */
+	SlotTable copy() {
+		SlotTable copy = new SlotTable();
+		for (int slot = nextSlot(0); slot >= 0; slot = nextSlot(slot + 1)) {
+			copy.put(slot, entries[slot]);
+		}
+		return copy;
+	}
+
+	/**
+	 * Gets if the table has no entries.
+	 *
+	 * @return true if there are no entries, false otherwise.
+	 */
+	boolean isEmpty() {
+		return occupied.isEmpty();
+	}
+
+	/**
+	 * Gets the highest slot that holds an entry.
+	 *
+	 * @return The highest occupied slot, or -1 if the table is empty.
+	 */
+	int getHighestSlot() {
+		return occupied.length() - 1;
+	}
+
+	/**
+	 * Gets the next occupied slot at or after the given slot.
+	 * Used to iterate the table without allocating:
+	 * {@code for (int slot = table.nextSlot(0); slot >= 0; slot = table.nextSlot(slot + 1))}
+	 *
+	 * @param fromSlot The slot to start searching from.
+	 * @return The next occupied slot, or -1 if there are no more.
+	 */
+	int nextSlot(int fromSlot) {
+		return fromSlot >= MAX_SLOTS ? -1 : occupied.nextSetBit(fromSlot);
+	}
+
+	/**
+	 * Removes the slot from the reverse index of the entry's value.
+	 *
+	 * @param slot The slot the entry is in.
+	 * @param entry The entry being removed from the slot.
+	 */
+	private void unindex(int slot, InventoryGUIEntry entry) {
+		BitSet slots = valueSlots.get(entry.getValue());
+		if (slots != null) {
+			slots.clear(slot);
+			if (slots.isEmpty()) {
+				valueSlots.remove(entry.getValue());
+			}
+		}
+	}
+
+	/**
+	 * Validates that the slot fits in a GUI inventory.
+	 *
+	 * @param slot The slot to validate.
+	 */
+	private static void checkSlot(int slot) {
+		if (slot < 0 || slot >= MAX_SLOTS) {
+			throw new IllegalArgumentException("Invalid slot '" + slot + "'. Must be between 0 and " + (MAX_SLOTS - 1));
+		}
+	}
+
+}
@@ -0,0 +1,277 @@
+package com.simplexservers.minecraft.bukkitutils.nms;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Shows action bar messages to players from a single shared timer.
+ *
+ * Each player has at most one message, a new message replaces the current one
+ * unless the current one has a higher priority and hasn't expired.
+ * The timer only runs while messages are shown and only re-sends the messages that are due.
+ * Must only be used from the main thread.
+ */
+public class ActionBarService {
+
+	/**
+	 * How long, in ticks, the client shows an action bar message.
+	 */
+	private static final long ACTIONBAR_CLIENT_DISPLAY_DURATION = 60L;
+	/**
+	 * How long, in ticks, the client takes to fade out an action bar message.
+	 */
+	private static final long ACTIONBAR_CLIENT_FADEOUT_DURATION = 20L;
+	/**
+	 * How often, in ticks, a message is re-sent so it doesn't start fading out.
+	 */
+	private static final long RESEND_INTERVAL = ACTIONBAR_CLIENT_DISPLAY_DURATION - ACTIONBAR_CLIENT_FADEOUT_DURATION;
+
+	/**
+	 * The JavaPlugin to register the timer under.
+	 */
+	private final JavaPlugin plugin;
+	/**
+	 * The message shown to each player.
+	 */
+	private final Map<UUID, ActionBarMessage> messages = new HashMap<>();
+	/**
+	 * The shared timer, only running while messages are shown.
+	 */
+	private BukkitTask task = null;
+	/**
+	 * The number of ticks the timer has run.
+	 */
+	private long currentTick = 0;
+
+	/**
+	 * Creates an ActionBarService.
+	 *
+	 * @param plugin The JavaPlugin to register the timer under.
+	 */
+	public ActionBarService(JavaPlugin plugin) {
+		this.plugin = plugin;
+	}
+
+	/**
+	 * Shows the message in the player's action bar with the default priority of 0.
+	 *
+	 * @param player The player to show the message to.
+	 * @param message The message to show.
+	 * @param duration How long, in ticks, the message should be shown.
+	 * @return true if the message is shown, false if a higher priority message is being shown.
+	 * @throws Exception If an error occurred sending the action bar message.
+	 */
+	public boolean show(Player player, String message, long duration) throws Exception {
+		return show(player, message, duration, 0);
+	}
+
+	/**
+	 * Shows the message in the player's action bar, replacing the current message
+	 * unless it has a higher priority.
+	 *
+	 * @param player The player to show the message to.
+	 * @param message The message to show.
+	 * @param duration How long, in ticks, the message should be shown.
+	 * @param priority The priority of the message.
+	 * @return true if the message is shown, false if a higher priority message is being shown.
+	 * @throws Exception If an error occurred sending the action bar message.
+	 */
+	public boolean show(Player player, String message, long duration, int priority) throws Exception {
+		return showComponent(player, ChatComponentCache.getText(message), duration, priority);
+	}
+
+	/**
+	 * Shows the chat component in the player's action bar, replacing the current message
+	 * unless it has a higher priority.
+	 *
+	 * @param player The player to show the message to.
+	 * @param message The chat component to show.
+	 * @param duration How long, in ticks, the message should be shown.
+	 * @param priority The priority of the message.
+	 * @return true if the message is shown, false if a higher priority message is being shown.
+	 * @throws Exception If an error occurred sending the action bar message.
+	 */
+	public boolean show(Player player, ChatComponent message, long duration, int priority) throws Exception {
+		return showComponent(player, ChatComponentCache.get(message), duration, priority);
+	}
+
+	/**
+	 * Shows the NMS component in the player's action bar, replacing the current message
+	 * unless it has a higher priority.
+	 *
+	 * @param player The player to show the message to.
+	 * @param component The NMS chat component to show.
+	 * @param duration How long, in ticks, the message should be shown.
+	 * @param priority The priority of the message.
+	 * @return true if the message is shown, false if a higher priority message is being shown.
+	 * @throws Exception If an error occurred sending the action bar message.
+	 */
+	private boolean showComponent(Player player, Object component, long duration, int priority) throws Exception {
+		if (duration <= 0) {
+			throw new IllegalArgumentException("Invalid duration '" + duration + "'. Must be positive");
+		}
+
+		ActionBarMessage current = messages.get(player.getUniqueId());
+		if (current != null && current.priority > priority && current.expireTick > currentTick) {
+			return false;
+		}
+
+		NMSAdapter adapter = NMSAdapters.get();
+		Object packet = adapter.createActionBarPacket(component);
+		ActionBarMessage actionBarMessage = new ActionBarMessage(packet, priority, currentTick, duration);
+
+		adapter.sendPacket(player, packet);
+		actionBarMessage.scheduleNextSend(currentTick);
+		messages.put(player.getUniqueId(), actionBarMessage);
+		startTask();
+		return true;
+	}
+
+	/**
+	 * Clears the player's action bar if a message is being shown.
+	 *
+	 * @param player The player to clear the action bar of.
+	 * @throws Exception If an error occurred clearing the action bar.
+	 */
+	public void clear(Player player) throws Exception {
+		if (messages.remove(player.getUniqueId()) != null) {
+			sendEmpty(player);
+		}
+	}
+
+	/**
+	 * Stops showing all messages. The messages already on the players' screens fade out on their own.
+	 */
+	public void stop() {
+		messages.clear();
+		stopTask();
+	}
+
+	/**
+	 * Starts the shared timer if it isn't running.
+	 */
+	private void startTask() {
+		if (task != null) {
+			return;
+		}
+
+		task = new BukkitRunnable() {
+			@Override
+			public void run() {
+				tick();
+			}
+		}.runTaskTimer(plugin, 1L, 1L);
+	}
+
+	/**
+	 * Stops the shared timer from running.
+	 */
+	private void stopTask() {
+		if (task != null) {
+			task.cancel();
+			task = null;
+		}
+	}
+
+	/**
+	 * Re-sends the messages that are due and removes the expired ones.
+	 */
+	private void tick() {
+		currentTick++;
+
+		Iterator<Map.Entry<UUID, ActionBarMessage>> iterator = messages.entrySet().iterator();
+		while (iterator.hasNext()) {
+			Map.Entry<UUID, ActionBarMessage> entry = iterator.next();
+			ActionBarMessage message = entry.getValue();
+			if (message.nextSendTick > currentTick && message.expireTick > currentTick) {
+				continue; // Nothing to do for this player yet
+			}
+
+			Player player = Bukkit.getPlayer(entry.getKey());
+			if (player == null) {
+				iterator.remove();
+				continue;
+			}
+
+			try {
+				if (message.expireTick <= currentTick) {
+					iterator.remove();
+					if (message.clearOnExpire) {
+						// Send an empty string to clear out the action bar for precise timing
+						sendEmpty(player);
+					}
+				} else {
+					NMSAdapters.get().sendPacket(player, message.packet);
+					message.scheduleNextSend(currentTick);
+				}
+			} catch (Exception e) {
+				plugin.getLogger().warning("An error occurred sending the action bar packet to the player.");
+			}
+		}
+
+		if (messages.isEmpty()) {
+			stopTask();
+		}
+	}
+
+	/**
+	 * Sends an empty action bar message to the player.
+	 *
+	 * @param player The player to send the message to.
+	 * @throws Exception If an error occurred sending the message.
+	 */
+	private static void sendEmpty(Player player) throws Exception {
+		NMSAdapter adapter = NMSAdapters.get();
+		adapter.sendPacket(player, adapter.createActionBarPacket(ChatComponentCache.getText("")));
+	}
+
+	/**
+	 * An action bar message shown to a player.
+	 */
+	private static class ActionBarMessage {
+
+		private final Object packet;
+		private final int priority;
+		private final long expireTick;
+		/**
+		 * The tick of the last send, timed so the client fades the message out right at the expiry.
+		 */
+		private final long finalSendTick;
+		/**
+		 * If the message is too short to fade out on its own and must be cleared when it expires.
+		 */
+		private final boolean clearOnExpire;
+		private long nextSendTick;
+
+		private ActionBarMessage(Object packet, int priority, long startTick, long duration) {
+			this.packet = packet;
+			this.priority = priority;
+			this.expireTick = startTick + duration;
+			this.finalSendTick = expireTick - ACTIONBAR_CLIENT_DISPLAY_DURATION;
+			this.clearOnExpire = duration < ACTIONBAR_CLIENT_DISPLAY_DURATION;
+		}
+
+		/**
+		 * Schedules the next send after a send on the given tick.
+		 *
+		 * @param sentTick The tick the message was sent on.
+		 */
+		private void scheduleNextSend(long sentTick) {
+			if (sentTick >= finalSendTick) {
+				nextSendTick = Long.MAX_VALUE;
+			} else {
+				nextSendTick = Math.min(sentTick + RESEND_INTERVAL, finalSendTick);
+			}
+		}
+
+	}
+
+}
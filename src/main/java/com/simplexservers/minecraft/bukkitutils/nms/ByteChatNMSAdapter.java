@@ -0,0 +1,25 @@
+package com.simplexservers.minecraft.bukkitutils.nms;
+
+/**
+ * The NMSAdapter for servers whose chat packet takes the chat position as a byte (1.8 to 1.11).
+ */
+class ByteChatNMSAdapter extends ReflectiveNMSAdapter {
+
+	/**
+	 * The chat position that shows the message in the action bar.
+	 */
+	private static final byte ACTIONBAR_CHAT_TYPE = 2;
+
+	private final NMSBinder.ByteChatPacketFactory chatPacketFactory;
+
+	ByteChatNMSAdapter() throws Exception {
+		chatPacketFactory = NMSBinder.bind(NMSBinder.ByteChatPacketFactory.class,
+				NMSBinder.LOOKUP.unreflectConstructor(chatPacketClass.getConstructor(chatComponentClass, byte.class)));
+	}
+
+	@Override
+	public Object createActionBarPacket(Object component) {
+		return chatPacketFactory.create(component, ACTIONBAR_CHAT_TYPE);
+	}
+
+}
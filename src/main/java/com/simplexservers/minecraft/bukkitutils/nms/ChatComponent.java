@@ -0,0 +1,220 @@
+package com.simplexservers.minecraft.bukkitutils.nms;
+
+import org.bukkit.ChatColor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A chat component that is serialized to the JSON chat format.
+ *
+ * The JSON is written with escaping into a reused per-thread buffer,
+ * so any text, including quotes and backslashes, is shown as is.
+ *
+ * @see ChatComponentCache
+ */
+public class ChatComponent {
+
+	/**
+	 * The capacity buffers are trimmed back to after serializing an unusually large component.
+	 */
+	private static final int MAX_RETAINED_BUFFER_CAPACITY = 1024;
+	/**
+	 * The JSON serialization buffer of each thread.
+	 */
+	private static final ThreadLocal<StringBuilder> buffers = ThreadLocal.withInitial(() -> new StringBuilder(64));
+
+	/**
+	 * The text of the component.
+	 */
+	private final String text;
+	/**
+	 * The color of the text, or null to inherit it.
+	 */
+	private ChatColor color = null;
+	private Boolean bold = null;
+	private Boolean italic = null;
+	private Boolean underlined = null;
+	private Boolean strikethrough = null;
+	private Boolean obfuscated = null;
+	/**
+	 * The components shown after the text, inheriting its style.
+	 */
+	private final List<ChatComponent> extra = new ArrayList<>();
+
+	/**
+	 * Creates a ChatComponent.
+	 *
+	 * @param text The text of the component.
+	 */
+	public ChatComponent(String text) {
+		if (text == null) {
+			throw new IllegalArgumentException("Invalid text 'null'. Must not be null");
+		}
+
+		this.text = text;
+	}
+
+	public String getText() {
+		return text;
+	}
+
+	/**
+	 * Sets the color of the text.
+	 *
+	 * @param color The color of the text, or null to inherit it.
+	 * @return This component.
+	 */
+	public ChatComponent setColor(ChatColor color) {
+		if (color != null && !color.isColor()) {
+			throw new IllegalArgumentException("Invalid color '" + color.name() + "'. Must be a color, not a format");
+		}
+
+		this.color = color;
+		return this;
+	}
+
+	public ChatComponent setBold(boolean bold) {
+		this.bold = bold;
+		return this;
+	}
+
+	public ChatComponent setItalic(boolean italic) {
+		this.italic = italic;
+		return this;
+	}
+
+	public ChatComponent setUnderlined(boolean underlined) {
+		this.underlined = underlined;
+		return this;
+	}
+
+	public ChatComponent setStrikethrough(boolean strikethrough) {
+		this.strikethrough = strikethrough;
+		return this;
+	}
+
+	public ChatComponent setObfuscated(boolean obfuscated) {
+		this.obfuscated = obfuscated;
+		return this;
+	}
+
+	/**
+	 * Appends a component after this component's text.
+	 *
+	 * @param component The component to append.
+	 * @return This component.
+	 */
+	public ChatComponent append(ChatComponent component) {
+		extra.add(component);
+		return this;
+	}
+
+	/**
+	 * Serializes the component to the JSON chat format.
+	 *
+	 * @return The JSON chat component.
+	 */
+	public String toJson() {
+		StringBuilder buffer = buffers.get();
+		buffer.setLength(0);
+		writeJson(buffer);
+		String json = buffer.toString();
+
+		if (buffer.capacity() > MAX_RETAINED_BUFFER_CAPACITY) {
+			buffers.set(new StringBuilder(64));
+		}
+		return json;
+	}
+
+	/**
+	 * Parses the component into an NMS chat component.
+	 *
+	 * @return The NMS IChatBaseComponent.
+	 * @throws Exception If an error occurred creating the NMS component.
+	 */
+	public Object toNMS() throws Exception {
+		return NMSAdapters.get().parseComponent(toJson());
+	}
+
+	/**
+	 * Writes the component as JSON to the buffer.
+	 *
+	 * @param buffer The buffer to write to.
+	 */
+	private void writeJson(StringBuilder buffer) {
+		buffer.append("{\"text\":");
+		writeString(buffer, text);
+		if (color != null) {
+			buffer.append(",\"color\":\"").append(color.name().toLowerCase()).append('"');
+		}
+		writeFlag(buffer, "bold", bold);
+		writeFlag(buffer, "italic", italic);
+		writeFlag(buffer, "underlined", underlined);
+		writeFlag(buffer, "strikethrough", strikethrough);
+		writeFlag(buffer, "obfuscated", obfuscated);
+
+		if (!extra.isEmpty()) {
+			buffer.append(",\"extra\":[");
+			for (int i = 0; i < extra.size(); i++) {
+				if (i > 0) {
+					buffer.append(',');
+				}
+				extra.get(i).writeJson(buffer);
+			}
+			buffer.append(']');
+		}
+		buffer.append('}');
+	}
+
+	/**
+	 * Writes the style flag to the buffer if it is set.
+	 *
+	 * @param buffer The buffer to write to.
+	 * @param name The name of the flag.
+	 * @param value The value of the flag, or null if it isn't set.
+	 */
+	private static void writeFlag(StringBuilder buffer, String name, Boolean value) {
+		if (value != null) {
+			buffer.append(",\"").append(name).append("\":").append(value.booleanValue());
+		}
+	}
+
+	/**
+	 * Writes the string as an escaped JSON string to the buffer.
+	 *
+	 * @param buffer The buffer to write to.
+	 * @param value The string to write.
+	 */
+	private static void writeString(StringBuilder buffer, String value) {
+		buffer.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+				case '"':
+					buffer.append("\\\"");
+					break;
+				case '\\':
+					buffer.append("\\\\");
+					break;
+				case '\n':
+					buffer.append("\\n");
+					break;
+				case '\r':
+					buffer.append("\\r");
+					break;
+				case '\t':
+					buffer.append("\\t");
+					break;
+				default:
+					if (c < 0x20) {
+						buffer.append(String.format("\\u%04x", (int) c));
+					} else {
+						buffer.append(c);
+					}
+			}
+		}
+		buffer.append('"');
+	}
+
+}
@@ -0,0 +1,98 @@
+package com.simplexservers.minecraft.bukkitutils.nms;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Caches the most recently used NMS chat components,
+ * so repeated messages skip the JSON serialization and parsing.
+ * This class is thread-safe.
+ */
+public class ChatComponentCache {
+
+	/**
+	 * The maximum number of components kept in each cache.
+	 */
+	private static final int MAX_ENTRIES = 256;
+
+	/**
+	 * The NMS components of plain text messages keyed by their text.
+	 */
+	private static final Map<String, Object> textComponents = createLRUMap();
+	/**
+	 * The NMS components keyed by their JSON.
+	 */
+	private static final Map<String, Object> jsonComponents = createLRUMap();
+
+	/**
+	 * Gets the NMS component showing the plain text.
+	 *
+	 * @param text The text of the component.
+	 * @return The NMS IChatBaseComponent.
+	 * @throws Exception If an error occurred creating the NMS component.
+	 */
+	public static Object getText(String text) throws Exception {
+		synchronized (textComponents) {
+			Object component = textComponents.get(text);
+			if (component != null) {
+				return component;
+			}
+		}
+
+		Object component = new ChatComponent(text).toNMS();
+		synchronized (textComponents) {
+			textComponents.put(text, component);
+		}
+		return component;
+	}
+
+	/**
+	 * Gets the NMS component of the chat component.
+	 *
+	 * @param chatComponent The chat component.
+	 * @return The NMS IChatBaseComponent.
+	 * @throws Exception If an error occurred creating the NMS component.
+	 */
+	public static Object get(ChatComponent chatComponent) throws Exception {
+		String json = chatComponent.toJson();
+		synchronized (jsonComponents) {
+			Object component = jsonComponents.get(json);
+			if (component != null) {
+				return component;
+			}
+		}
+
+		Object component = NMSAdapters.get().parseComponent(json);
+		synchronized (jsonComponents) {
+			jsonComponents.put(json, component);
+		}
+		return component;
+	}
+
+	/**
+	 * Removes all the cached components.
+	 */
+	public static void clear() {
+		synchronized (textComponents) {
+			textComponents.clear();
+		}
+		synchronized (jsonComponents) {
+			jsonComponents.clear();
+		}
+	}
+
+	/**
+	 * Creates a map that evicts its least recently used entry past the maximum size.
+	 *
+	 * @return The LRU map.
+	 */
+	private static Map<String, Object> createLRUMap() {
+		return new LinkedHashMap<String, Object>(MAX_ENTRIES * 4 / 3 + 1, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Object> eldest) {
+				return size() > MAX_ENTRIES;
+			}
+		};
+	}
+
+}
@@ -0,0 +1,37 @@
+package com.simplexservers.minecraft.bukkitutils.nms;
+
+/**
+ * The NMSAdapter for servers whose chat packet takes a ChatMessageType and that still use
+ * the IChatBaseComponent based packets of the base adapter (1.12).
+ */
+class ChatMessageTypeNMSAdapter extends ReflectiveNMSAdapter {
+
+	private final NMSBinder.TypedChatPacketFactory chatPacketFactory;
+	/**
+	 * The NMS ChatMessageType that shows the message in the action bar.
+	 */
+	private final Object actionBarChatType;
+
+	ChatMessageTypeNMSAdapter() throws Exception {
+		Class<?> chatMessageTypeClass = NMSUtil.getNMSClass("ChatMessageType");
+		chatPacketFactory = NMSBinder.bind(NMSBinder.TypedChatPacketFactory.class,
+				NMSBinder.LOOKUP.unreflectConstructor(chatPacketClass.getConstructor(chatComponentClass, chatMessageTypeClass)));
+
+		Object gameInfo = null;
+		for (Object chatType : chatMessageTypeClass.getEnumConstants()) {
+			if (((Enum<?>) chatType).name().equals("GAME_INFO")) {
+				gameInfo = chatType;
+			}
+		}
+		if (gameInfo == null) {
+			throw new NoSuchFieldException("ChatMessageType.GAME_INFO could not be found.");
+		}
+		actionBarChatType = gameInfo;
+	}
+
+	@Override
+	public Object createActionBarPacket(Object component) {
+		return chatPacketFactory.create(component, actionBarChatType);
+	}
+
+}
@@ -0,0 +1,98 @@
+package com.simplexservers.minecraft.bukkitutils.nms;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import org.bukkit.entity.Player;
+
+/**
+ * Builds and sends NMS packets for the running server version.
+ * Implementations bind the NMS constructors and methods once when they are created,
+ * so each call is close to a direct call.
+ *
+ * @see NMSAdapters#get()
+ */
+public interface NMSAdapter {
+
+	/**
+	 * The actions of a title packet.
+	 */
+	enum TitleAction {
+		TITLE, SUBTITLE, TIMES, CLEAR, RESET
+	}
+
+	/**
+	 * Gets the NMS connection of the player.
+	 *
+	 * @param player The player to get the connection of.
+	 * @return The player's NMS PlayerConnection.
+	 */
+	Object getConnection(Player player);
+
+	/**
+	 * Sends the NMS packet to the player.
+	 *
+	 * @param player The player to send the packet to.
+	 * @param packet The NMS packet to send.
+	 */
+	void sendPacket(Player player, Object packet);
+
+	/**
+	 * Parses the JSON chat component into an NMS chat component.
+	 *
+	 * @param json The JSON chat component.
+	 * @return The NMS IChatBaseComponent.
+	 */
+	Object parseComponent(String json);
+
+	/**
+	 * Creates a packet that shows the component in the player's action bar.
+	 *
+	 * @param component The NMS chat component to show.
+	 * @return The NMS packet.
+	 */
+	Object createActionBarPacket(Object component);
+
+	/**
+	 * Creates a title packet.
+	 *
+	 * @param action The title action of the packet.
+	 * @param component The NMS chat component for TITLE and SUBTITLE actions, null otherwise.
+	 * @param fadeIn The fade in time, in ticks, for the TIMES action.
+	 * @param stay The time, in ticks, the title stays for the TIMES action.
+	 * @param fadeOut The fade out time, in ticks, for the TIMES action.
+	 * @return The NMS packet.
+	 * @throws UnsupportedOperationException If titles are not supported by the server.
+	 */
+	Object createTitlePacket(TitleAction action, Object component, int fadeIn, int stay, int fadeOut);
+
+	/**
+	 * Creates a packet that sets the header and footer of the player list.
+	 *
+	 * @param header The NMS chat component for the header.
+	 * @param footer The NMS chat component for the footer.
+	 * @return The NMS packet.
+	 * @throws UnsupportedOperationException If the player list header and footer are not supported by the server.
+	 */
+	Object createTabListPacket(Object header, Object footer);
+
+	/**
+	 * Gets the network channel of the player's connection.
+	 *
+	 * @param player The player to get the channel of.
+	 * @return The player's Netty channel, or null if the player isn't connected.
+	 * @throws UnsupportedOperationException If packet serialization is not supported by the server.
+	 */
+	Channel getChannel(Player player);
+
+	/**
+	 * Serializes the play state packet into a new buffer holding its packet ID and payload.
+	 * The buffer can be written to any player's channel, where the length prefix,
+	 * compression and encryption of that connection are applied.
+	 *
+	 * @param packet The NMS packet to serialize.
+	 * @return The serialized packet, to be released by the caller.
+	 * @throws UnsupportedOperationException If packet serialization is not supported by the server.
+	 */
+	ByteBuf serializePacket(Object packet);
+
+}
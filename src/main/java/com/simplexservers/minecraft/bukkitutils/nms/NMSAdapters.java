@@ -0,0 +1,77 @@
+package com.simplexservers.minecraft.bukkitutils.nms;
+
+/**
+ * Selects the NMSAdapter for the running server version.
+ */
+public class NMSAdapters {
+
+	/**
+	 * The adapter for the server, selected on first use.
+	 */
+	private static volatile NMSAdapter adapter = null;
+
+	/**
+	 * Gets the NMSAdapter for the running server version.
+	 * The adapter is selected and bound once, the first time this is called.
+	 *
+	 * @return The server's NMSAdapter.
+	 * @throws Exception If the server version is not supported.
+	 */
+	public static NMSAdapter get() throws Exception {
+		NMSAdapter selected = adapter;
+		if (selected == null) {
+			synchronized (NMSAdapters.class) {
+				selected = adapter;
+				if (selected == null) {
+					adapter = selected = createAdapter();
+				}
+			}
+		}
+		return selected;
+	}
+
+	/**
+	 * Creates the adapter matching the shape of the server's chat packet.
+	 *
+	 * @return The adapter for the server.
+	 * @throws Exception If the server version is not supported.
+	 */
+	private static NMSAdapter createAdapter() throws Exception {
+		Class<?> chatPacketClass = NMSUtil.getNMSClass("PacketPlayOutChat");
+		Class<?> chatComponentClass = NMSUtil.getNMSClass("IChatBaseComponent");
+
+		// Only the probes may fail quietly, errors binding the selected adapter are thrown as is
+		if (hasConstructor(chatPacketClass, chatComponentClass, byte.class)) {
+			return new ByteChatNMSAdapter(); // 1.8 to 1.11
+		}
+
+		Class<?> chatMessageTypeClass;
+		try {
+			chatMessageTypeClass = NMSUtil.getNMSClass("ChatMessageType");
+		} catch (ClassNotFoundException e) {
+			chatMessageTypeClass = null;
+		}
+		if (chatMessageTypeClass != null && hasConstructor(chatPacketClass, chatComponentClass, chatMessageTypeClass)) {
+			return new ChatMessageTypeNMSAdapter(); // 1.12
+		}
+
+		throw new UnsupportedOperationException("The server version " + NMSUtil.getVersion() + " is not supported.");
+	}
+
+	/**
+	 * Checks if the class has a public constructor with the parameter types.
+	 *
+	 * @param clazz The class to check.
+	 * @param parameterTypes The parameter types of the constructor.
+	 * @return true if the constructor exists, false otherwise.
+	 */
+	private static boolean hasConstructor(Class<?> clazz, Class<?>... parameterTypes) {
+		try {
+			clazz.getConstructor(parameterTypes);
+			return true;
+		} catch (NoSuchMethodException e) {
+			return false;
+		}
+	}
+
+}
@@ -0,0 +1,142 @@
+package com.simplexservers.minecraft.bukkitutils.nms;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandleProxies;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * Binds NMS methods and constructors into instances of functional interfaces.
+ */
+class NMSBinder {
+
+	/**
+	 * The lookup the bound implementations are created with.
+	 */
+	static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+	/**
+	 * Binds the direct method handle to the functional interface.
+	 * The interface's method takes the erased types of the handle's parameters.
+	 *
+	 * Uses LambdaMetafactory so calls through the interface are direct calls the JIT can inline,
+	 * falling back to a slower proxy if the handle can't be spun into a lambda.
+	 *
+	 * @param functionalInterface The functional interface to implement.
+	 * @param impl A direct method handle, such as from {@link MethodHandles.Lookup#unreflect(Method)}.
+	 * @param <T> The type of the functional interface.
+	 * @return The functional interface bound to the handle.
+	 */
+	static <T> T bind(Class<T> functionalInterface, MethodHandle impl) {
+		Method sam = getFunctionalMethod(functionalInterface);
+		MethodType samType = MethodType.methodType(sam.getReturnType(), sam.getParameterTypes());
+		try {
+			CallSite site = LambdaMetafactory.metafactory(LOOKUP, sam.getName(), MethodType.methodType(functionalInterface),
+					samType, impl, impl.type());
+			return functionalInterface.cast(site.getTarget().invoke());
+		} catch (Throwable t) {
+			return MethodHandleProxies.asInterfaceInstance(functionalInterface, impl.asType(samType));
+		}
+	}
+
+	/**
+	 * Gets the single abstract method of the functional interface.
+	 *
+	 * @param functionalInterface The functional interface.
+	 * @return The interface's abstract method.
+	 */
+	private static Method getFunctionalMethod(Class<?> functionalInterface) {
+		for (Method method : functionalInterface.getMethods()) {
+			if (Modifier.isAbstract(method.getModifiers())) {
+				return method;
+			}
+		}
+
+		throw new IllegalArgumentException(functionalInterface.getName() + " is not a functional interface");
+	}
+
+	/**
+	 * (String json)Object component
+	 */
+	@FunctionalInterface
+	interface ComponentParser {
+		Object parse(String json);
+	}
+
+	/**
+	 * (Object player)Object nmsPlayer
+	 */
+	@FunctionalInterface
+	interface HandleGetter {
+		Object getHandle(Object player);
+	}
+
+	/**
+	 * (Object connection, Object packet)void
+	 */
+	@FunctionalInterface
+	interface PacketSender {
+		void send(Object connection, Object packet);
+	}
+
+	/**
+	 * (Object component, byte type)Object packet
+	 */
+	@FunctionalInterface
+	interface ByteChatPacketFactory {
+		Object create(Object component, byte type);
+	}
+
+	/**
+	 * (Object component, Object type)Object packet
+	 */
+	@FunctionalInterface
+	interface TypedChatPacketFactory {
+		Object create(Object component, Object type);
+	}
+
+	/**
+	 * (Object action, Object component, int fadeIn, int stay, int fadeOut)Object packet
+	 */
+	@FunctionalInterface
+	interface TitlePacketFactory {
+		Object create(Object action, Object component, int fadeIn, int stay, int fadeOut);
+	}
+
+	/**
+	 * (Object component)Object packet
+	 */
+	@FunctionalInterface
+	interface ComponentPacketFactory {
+		Object create(Object component);
+	}
+
+	/**
+	 * (Object buffer)Object serializer
+	 */
+	@FunctionalInterface
+	interface SerializerFactory {
+		Object create(Object buffer);
+	}
+
+	/**
+	 * (Object packet, Object serializer)void
+	 */
+	@FunctionalInterface
+	interface PacketWriter {
+		void write(Object packet, Object serializer);
+	}
+
+	/**
+	 * (Object protocol, Object direction, Object packet)Object id
+	 */
+	@FunctionalInterface
+	interface PacketIdGetter {
+		Object getId(Object protocol, Object direction, Object packet);
+	}
+
+}
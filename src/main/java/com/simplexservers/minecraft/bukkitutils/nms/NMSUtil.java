@@ -3,24 +3,82 @@ package com.simplexservers.minecraft.bukkitutils.nms;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 
-import java.lang.reflect.Field;
-import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Reflective access to the server's NMS and CraftBukkit classes.
+ * Classes are resolved once and cached for the server version.
+ */
 public class NMSUtil {
 
+	/**
+	 * The resolved classes keyed by their fully qualified name.
+	 */
+	private static final Map<String, Class<?>> classes = new ConcurrentHashMap<>();
+
+	/**
+	 * The NMS package version of the server, such as v1_10_R1.
+	 */
+	private static volatile String version = null;
+
+	/**
+	 * Gets the NMS package version of the server, such as v1_10_R1.
+	 *
+	 * @return The server's NMS version.
+	 */
+	public static String getVersion() {
+		if (version == null) {
+			String packageName = Bukkit.getServer().getClass().getPackage().getName();
+			version = packageName.substring(packageName.lastIndexOf('.') + 1);
+		}
+		return version;
+	}
+
 	public static Class<?> getNMSClass(String nmsClassName) throws ClassNotFoundException {
-		String version = Bukkit.getServer().getClass().getPackage().getName().replace(".", ",").split(",")[3];
-		String name = "net.minecraft.server." + version + "." + nmsClassName;
-		Class<?> nmsClass = Class.forName(name);
-		return nmsClass;
+		return getClass("net.minecraft.server." + getVersion() + "." + nmsClassName);
+	}
+
+	/**
+	 * Gets the CraftBukkit class for the server version.
+	 *
+	 * @param craftClassName The name of the class relative to the CraftBukkit package, such as entity.CraftPlayer.
+	 * @return The CraftBukkit class.
+	 * @throws ClassNotFoundException If the class does not exist.
+	 */
+	public static Class<?> getCraftBukkitClass(String craftClassName) throws ClassNotFoundException {
+		return getClass("org.bukkit.craftbukkit." + getVersion() + "." + craftClassName);
 	}
 
 	public static Object getConnection(Player player) throws Exception {
-		Method getHandle = player.getClass().getMethod("getHandle");
-		Object nmsPlayer = getHandle.invoke(player);
-		Field connField = nmsPlayer.getClass().getField("playerConnection");
-		Object conn = connField.get(nmsPlayer);
-		return conn;
+		return NMSAdapters.get().getConnection(player);
+	}
+
+	/**
+	 * Sends the NMS packet to the player.
+	 *
+	 * @param player The player to send the packet to.
+	 * @param packet The NMS packet to send.
+	 * @throws Exception If the packet could not be sent.
+	 */
+	public static void sendPacket(Player player, Object packet) throws Exception {
+		NMSAdapters.get().sendPacket(player, packet);
+	}
+
+	/**
+	 * Gets the class with the given name from the cache, loading it if it isn't cached.
+	 *
+	 * @param name The fully qualified name of the class.
+	 * @return The class.
+	 * @throws ClassNotFoundException If the class does not exist.
+	 */
+	private static Class<?> getClass(String name) throws ClassNotFoundException {
+		Class<?> clazz = classes.get(name);
+		if (clazz == null) {
+			clazz = Class.forName(name);
+			classes.put(name, clazz);
+		}
+		return clazz;
 	}
 
 }
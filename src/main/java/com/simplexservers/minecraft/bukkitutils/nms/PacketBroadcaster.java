@@ -0,0 +1,80 @@
+package com.simplexservers.minecraft.bukkitutils.nms;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import org.bukkit.entity.Player;
+
+import java.util.Collection;
+
+/**
+ * Sends the same packet to many players.
+ *
+ * The packet is built and serialized once into a shared buffer, and each player's channel
+ * is written a view of that buffer, so the cost of a broadcast barely grows with the number of players.
+ * Only the length prefix, compression and encryption are still done per connection.
+ * Broadcast packets skip the server's per-connection packet queue, so they should only be
+ * used for packets whose order relative to other packets doesn't matter, such as chat and titles.
+ */
+public class PacketBroadcaster {
+
+	/**
+	 * Sends the NMS packet to all the players.
+	 *
+	 * @param players The players to send the packet to.
+	 * @param packet The NMS packet to send.
+	 * @throws Exception If an error occurred serializing the packet.
+	 */
+	public static void broadcast(Collection<? extends Player> players, Object packet) throws Exception {
+		if (players.isEmpty()) {
+			return;
+		}
+
+		NMSAdapter adapter = NMSAdapters.get();
+		ByteBuf buffer = adapter.serializePacket(packet);
+		try {
+			for (Player player : players) {
+				Channel channel = adapter.getChannel(player);
+				if (channel == null || !channel.isOpen()) {
+					continue;
+				}
+
+				// Each write gets its own indices and reference, the encoders release it when written
+				channel.writeAndFlush(buffer.duplicate().retain());
+			}
+		} finally {
+			buffer.release();
+		}
+	}
+
+	/**
+	 * Shows the message in the action bar of all the players.
+	 * The message is shown for as long as the client shows a single action bar packet.
+	 *
+	 * @param players The players to show the message to.
+	 * @param message The message to show.
+	 * @throws Exception If an error occurred sending the action bar message.
+	 */
+	public static void broadcastActionBarMessage(Collection<? extends Player> players, String message) throws Exception {
+		NMSAdapter adapter = NMSAdapters.get();
+		broadcast(players, adapter.createActionBarPacket(ChatComponentCache.getText(message)));
+	}
+
+	/**
+	 * Shows the title and subtitle to all the players.
+	 *
+	 * @param players The players to show the title to.
+	 * @param title The title to show, or null to only show the subtitle.
+	 * @param subtitle The subtitle to show, or null to not show one.
+	 * @param fadeIn How long, in ticks, the title takes to fade in.
+	 * @param stay How long, in ticks, the title is shown.
+	 * @param fadeOut How long, in ticks, the title takes to fade out.
+	 * @throws Exception If an error occurred sending the title.
+	 */
+	public static void broadcastTitle(Collection<? extends Player> players, String title, String subtitle,
+	                                  int fadeIn, int stay, int fadeOut) throws Exception {
+		for (Object packet : PlayerUtils.createTitlePackets(title, subtitle, fadeIn, stay, fadeOut)) {
+			broadcast(players, packet);
+		}
+	}
+
+}
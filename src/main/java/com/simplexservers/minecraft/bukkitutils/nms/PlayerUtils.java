@@ -2,97 +2,126 @@ package com.simplexservers.minecraft.bukkitutils.nms;
 
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.java.JavaPlugin;
-import org.bukkit.scheduler.BukkitRunnable;
-import org.bukkit.scheduler.BukkitTask;
 
-import java.lang.reflect.Constructor;
-import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class PlayerUtils {
 
-	private static final long ACTIONBAR_CLIENT_DISPLAY_DURATION = 60L;
-	private static final long ACTIONBAR_CLIENT_FADEOUT_DURATION = 20L;
+	/**
+	 * The action bar service of each plugin that has sent an action bar message.
+	 * Services of disabled plugins are stopped and removed when another service is requested.
+	 */
+	private static final Map<JavaPlugin, ActionBarService> actionBarServices = new ConcurrentHashMap<>();
 
 	/**
-	 * Sends an action bar message to the player.
+	 * Sends an action bar message to the player, replacing the message currently shown.
+	 * Must be called from the main thread.
 	 *
 	 * @param plugin The Bukkit plugin sending the message.
 	 * @param player The player to send the action bar message to.
 	 * @param message The message to send to the player.
 	 * @param duration How long, in ticks, the message should be shown to the player.
 	 * @throws Exception If an error occurred sending the action bar message.
+	 * @see ActionBarService
 	 */
 	public static void sendActionBarMessage(JavaPlugin plugin, Player player, String message, long duration) throws Exception {
-		if (duration <= 0) {
-			throw new IllegalArgumentException("Invalid duration '" + duration + "'. Must be positive");
-		}
+		getActionBarService(plugin).show(player, message, duration);
+	}
 
-		// Build the IChatBaseComponent
-		Class<?> chatComponentClass = NMSUtil.getNMSClass("IChatBaseComponent");
-		Class<?> chatSerializerClass = null;
-		for (Class<?> clazz : chatComponentClass.getDeclaredClasses()) {
-			if (clazz.getSimpleName().equals("ChatSerializer")) {
-				chatSerializerClass = clazz;
-				break;
+	/**
+	 * Gets the plugin's action bar service, creating it if the plugin doesn't have one yet.
+	 * Must be called from the main thread.
+	 *
+	 * @param plugin The Bukkit plugin sending action bar messages.
+	 * @return The plugin's action bar service.
+	 */
+	public static ActionBarService getActionBarService(JavaPlugin plugin) {
+		// Drop the services of disabled plugins, such as the old instance of a reloaded plugin
+		actionBarServices.entrySet().removeIf(service -> {
+			if (service.getKey().isEnabled()) {
+				return false;
 			}
-		}
-		if (chatSerializerClass == null) {
-			throw new ClassNotFoundException("ChatSerializer class could not be found.");
-		}
-
-		Method a = chatSerializerClass.getMethod("a", String.class);
-		Object nmsChatComponent = a.invoke(null, "{\"text\": \"" + message + "\"}");
-		Object nmsEmptyStringChatComponent = a.invoke(null, "{\"text\": \"\"}");
+			service.getValue().stop();
+			return true;
+		});
 
-		// Build the packet
-		Class<?> chatPacketClass = NMSUtil.getNMSClass("PacketPlayOutChat");
-		Constructor<?> chatPacketConstructor = chatPacketClass.getConstructor(chatComponentClass, byte.class);
-		Object nmsChatPacket = chatPacketConstructor.newInstance(nmsChatComponent, (byte) 2);
-		Object nmsEmptyChatPacket = chatPacketConstructor.newInstance(nmsEmptyStringChatComponent, (byte) 2);
+		return actionBarServices.computeIfAbsent(plugin, ActionBarService::new);
+	}
 
-		Object nmsPlayerConnection = NMSUtil.getConnection(player);
-		Method sendPacketMethod = nmsPlayerConnection.getClass().getMethod("sendPacket", NMSUtil.getNMSClass("Packet"));
+	/**
+	 * Stops and removes the plugin's action bar service, if it has one.
+	 * Should be called when the plugin is disabled.
+	 *
+	 * @param plugin The Bukkit plugin that sent action bar messages.
+	 */
+	public static void removeActionBarService(JavaPlugin plugin) {
+		ActionBarService service = actionBarServices.remove(plugin);
+		if (service != null) {
+			service.stop();
+		}
+	}
 
-		// Continuously send the packet so it doesn't get cleared from the player's screen
-		BukkitTask packetTask = new BukkitRunnable() {
-			@Override
-			public void run() {
-				try {
-					sendPacketMethod.invoke(nmsPlayerConnection, nmsChatPacket);
-				} catch (Exception e) {
-					plugin.getLogger().warning("An error occurred sending the action bar packet to the player.");
-				}
-			}
-		}.runTaskTimer(plugin, 0L, ACTIONBAR_CLIENT_DISPLAY_DURATION - ACTIONBAR_CLIENT_FADEOUT_DURATION);
+	/**
+	 * Sends a title and subtitle to the player.
+	 *
+	 * @param player The player to send the title to.
+	 * @param title The title to show, or null to only show the subtitle.
+	 * @param subtitle The subtitle to show, or null to not show one.
+	 * @param fadeIn How long, in ticks, the title takes to fade in.
+	 * @param stay How long, in ticks, the title is shown.
+	 * @param fadeOut How long, in ticks, the title takes to fade out.
+	 * @throws Exception If an error occurred sending the title.
+	 */
+	public static void sendTitle(Player player, String title, String subtitle, int fadeIn, int stay, int fadeOut) throws Exception {
+		NMSAdapter adapter = NMSAdapters.get();
+		for (Object packet : createTitlePackets(title, subtitle, fadeIn, stay, fadeOut)) {
+			adapter.sendPacket(player, packet);
+		}
+	}
 
-		// Stop the packetTask
-		if (duration < ACTIONBAR_CLIENT_DISPLAY_DURATION) {
-			new BukkitRunnable() {
-				@Override
-				public void run() {
-					packetTask.cancel();
-					// Send an empty string to clear out the action bar for precise timing
-					try {
-						sendPacketMethod.invoke(nmsPlayerConnection, nmsEmptyChatPacket);
-					} catch (Exception e) {
-						plugin.getLogger().warning("Error clearing player action bar.");
-					}
-				}
-			}.runTaskLater(plugin, duration);
-		} else {
-			// Stop the scheduled task and send a packet so it'll fade out right at the duration time
-			new BukkitRunnable() {
-				@Override
-				public void run() {
-					packetTask.cancel();
-					try {
-						sendPacketMethod.invoke(nmsPlayerConnection, nmsChatPacket);
-					} catch (Exception e) {
-						plugin.getLogger().warning("Error clearing player action bar.");
-					}
-				}
-			}.runTaskLater(plugin, duration - ACTIONBAR_CLIENT_DISPLAY_DURATION);
+	/**
+	 * Creates the packets that show a title and subtitle, in the order they must be sent.
+	 *
+	 * @param title The title to show, or null to only show the subtitle.
+	 * @param subtitle The subtitle to show, or null to not show one.
+	 * @param fadeIn How long, in ticks, the title takes to fade in.
+	 * @param stay How long, in ticks, the title is shown.
+	 * @param fadeOut How long, in ticks, the title takes to fade out.
+	 * @return The NMS packets.
+	 * @throws Exception If an error occurred creating the packets.
+	 * @see PacketBroadcaster#broadcastTitle(Collection, String, String, int, int, int)
+	 */
+	static List<Object> createTitlePackets(String title, String subtitle, int fadeIn, int stay, int fadeOut) throws Exception {
+		NMSAdapter adapter = NMSAdapters.get();
+		List<Object> packets = new ArrayList<>(3);
+		packets.add(adapter.createTitlePacket(NMSAdapter.TitleAction.TIMES, null, fadeIn, stay, fadeOut));
+		if (subtitle != null) {
+			Object component = ChatComponentCache.getText(subtitle);
+			packets.add(adapter.createTitlePacket(NMSAdapter.TitleAction.SUBTITLE, component, fadeIn, stay, fadeOut));
 		}
+		// The title must be sent for the subtitle to show
+		Object component = ChatComponentCache.getText(title == null ? "" : title);
+		packets.add(adapter.createTitlePacket(NMSAdapter.TitleAction.TITLE, component, fadeIn, stay, fadeOut));
+		return packets;
+	}
+
+	/**
+	 * Sets the header and footer of the player list shown to the player.
+	 *
+	 * @param player The player to set the player list header and footer for.
+	 * @param header The header to show.
+	 * @param footer The footer to show.
+	 * @throws Exception If an error occurred sending the header and footer.
+	 */
+	public static void sendTabList(Player player, String header, String footer) throws Exception {
+		NMSAdapter adapter = NMSAdapters.get();
+		Object nmsHeader = ChatComponentCache.getText(header);
+		Object nmsFooter = ChatComponentCache.getText(footer);
+		adapter.sendPacket(player, adapter.createTabListPacket(nmsHeader, nmsFooter));
 	}
 
 }
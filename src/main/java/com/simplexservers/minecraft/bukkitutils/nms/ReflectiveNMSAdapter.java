@@ -0,0 +1,382 @@
+package com.simplexservers.minecraft.bukkitutils.nms;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import org.bukkit.entity.Player;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The base NMSAdapter for servers that use the Spigot NMS class names.
+ * Binds everything but the chat packet, whose shape differs across versions.
+ *
+ * Only chat components and connections are required. Titles, the player list header and footer
+ * and packet serialization are bound separately, so a server missing one of them still
+ * gets the rest, and using a missing one throws an UnsupportedOperationException.
+ */
+abstract class ReflectiveNMSAdapter implements NMSAdapter {
+
+	/**
+	 * The NMS IChatBaseComponent class.
+	 */
+	protected final Class<?> chatComponentClass;
+	/**
+	 * The NMS PacketPlayOutChat class.
+	 */
+	protected final Class<?> chatPacketClass;
+
+	private final NMSBinder.ComponentParser componentParser;
+	private final NMSBinder.HandleGetter handleGetter;
+	/**
+	 * (Object nmsPlayer)Object connection
+	 */
+	private final MethodHandle connectionGetter;
+	private final NMSBinder.PacketSender packetSender;
+
+	/**
+	 * The title bindings, or null if they could not be bound.
+	 */
+	private final TitleBinding titles;
+	/**
+	 * Why the title bindings could not be bound, or null if they were.
+	 */
+	private final Exception titlesError;
+	/**
+	 * The player list header and footer bindings, or null if they could not be bound.
+	 */
+	private final TabListBinding tabList;
+	/**
+	 * Why the player list bindings could not be bound, or null if they were.
+	 */
+	private final Exception tabListError;
+	/**
+	 * The packet serialization bindings, or null if they could not be bound.
+	 */
+	private final SerializationBinding serialization;
+	/**
+	 * Why the packet serialization bindings could not be bound, or null if they were.
+	 */
+	private final Exception serializationError;
+
+	ReflectiveNMSAdapter() throws Exception {
+		chatComponentClass = NMSUtil.getNMSClass("IChatBaseComponent");
+		chatPacketClass = NMSUtil.getNMSClass("PacketPlayOutChat");
+
+		// Chat components
+		Class<?> chatSerializerClass;
+		try {
+			chatSerializerClass = NMSUtil.getNMSClass("IChatBaseComponent$ChatSerializer");
+		} catch (ClassNotFoundException e) {
+			chatSerializerClass = NMSUtil.getNMSClass("ChatSerializer"); // Top-level before 1.8.3
+		}
+		componentParser = NMSBinder.bind(NMSBinder.ComponentParser.class,
+				NMSBinder.LOOKUP.unreflect(chatSerializerClass.getMethod("a", String.class)));
+
+		// Connections
+		Class<?> craftPlayerClass = NMSUtil.getCraftBukkitClass("entity.CraftPlayer");
+		MethodHandle getHandle = NMSBinder.LOOKUP.unreflect(craftPlayerClass.getMethod("getHandle"));
+		handleGetter = NMSBinder.bind(NMSBinder.HandleGetter.class, getHandle);
+		Field connectionField = getHandle.type().returnType().getField("playerConnection");
+		connectionGetter = NMSBinder.LOOKUP.unreflectGetter(connectionField)
+				.asType(MethodType.methodType(Object.class, Object.class));
+		packetSender = NMSBinder.bind(NMSBinder.PacketSender.class,
+				NMSBinder.LOOKUP.unreflect(connectionField.getType().getMethod("sendPacket", NMSUtil.getNMSClass("Packet"))));
+
+		TitleBinding titles = null;
+		Exception titlesError = null;
+		try {
+			titles = new TitleBinding(chatComponentClass);
+		} catch (Exception e) {
+			titlesError = e;
+		}
+		this.titles = titles;
+		this.titlesError = titlesError;
+
+		TabListBinding tabList = null;
+		Exception tabListError = null;
+		try {
+			tabList = new TabListBinding(chatComponentClass);
+		} catch (Exception e) {
+			tabListError = e;
+		}
+		this.tabList = tabList;
+		this.tabListError = tabListError;
+
+		SerializationBinding serialization = null;
+		Exception serializationError = null;
+		try {
+			serialization = new SerializationBinding(connectionField);
+		} catch (Exception e) {
+			serializationError = e;
+		}
+		this.serialization = serialization;
+		this.serializationError = serializationError;
+	}
+
+	@Override
+	public Object getConnection(Player player) {
+		try {
+			return connectionGetter.invokeExact(handleGetter.getHandle(player));
+		} catch (Throwable t) {
+			throw propagate(t);
+		}
+	}
+
+	@Override
+	public void sendPacket(Player player, Object packet) {
+		packetSender.send(getConnection(player), packet);
+	}
+
+	@Override
+	public Object parseComponent(String json) {
+		return componentParser.parse(json);
+	}
+
+	@Override
+	public Object createTitlePacket(TitleAction action, Object component, int fadeIn, int stay, int fadeOut) {
+		if (titles == null) {
+			throw new UnsupportedOperationException("Titles are not supported by this server version.", titlesError);
+		}
+
+		Object nmsAction = titles.actions.get(action);
+		if (nmsAction == null) {
+			throw new UnsupportedOperationException("The title action " + action + " is not supported by this server version.");
+		}
+		return titles.packetFactory.create(nmsAction, component, fadeIn, stay, fadeOut);
+	}
+
+	@Override
+	public Object createTabListPacket(Object header, Object footer) {
+		if (tabList == null) {
+			throw new UnsupportedOperationException("The player list header and footer are not supported by this server version.", tabListError);
+		}
+
+		Object packet = tabList.headerPacketFactory.create(header);
+		try {
+			tabList.footerSetter.invokeExact(packet, footer);
+		} catch (Throwable t) {
+			throw propagate(t);
+		}
+		return packet;
+	}
+
+	@Override
+	public Channel getChannel(Player player) {
+		checkSerialization();
+		try {
+			Object channel = serialization.channelGetter.invokeExact(getConnection(player));
+			return (Channel) channel;
+		} catch (Throwable t) {
+			throw propagate(t);
+		}
+	}
+
+	@Override
+	public ByteBuf serializePacket(Object packet) {
+		checkSerialization();
+		Integer packetID = serialization.packetIDs.get(packet.getClass());
+		if (packetID == null) {
+			Object id = serialization.packetIdGetter.getId(serialization.playProtocol, serialization.clientboundDirection, packet);
+			if (id == null) {
+				throw new IllegalArgumentException("Invalid packet '" + packet.getClass().getName() + "'. Must be a clientbound play packet");
+			}
+			packetID = ((Number) id).intValue();
+			serialization.packetIDs.put(packet.getClass(), packetID);
+		}
+
+		ByteBuf buffer = Unpooled.buffer();
+		try {
+			writeVarInt(buffer, packetID);
+			serialization.packetWriter.write(packet, serialization.serializerFactory.create(buffer));
+		} catch (RuntimeException e) {
+			buffer.release();
+			throw e;
+		}
+		return buffer;
+	}
+
+	/**
+	 * Checks that packet serialization could be bound.
+	 *
+	 * @throws UnsupportedOperationException If packet serialization could not be bound.
+	 */
+	private void checkSerialization() {
+		if (serialization == null) {
+			throw new UnsupportedOperationException("Packet serialization is not supported by this server version.", serializationError);
+		}
+	}
+
+	/**
+	 * The bindings for title packets.
+	 */
+	private static class TitleBinding {
+
+		private final NMSBinder.TitlePacketFactory packetFactory;
+		/**
+		 * The NMS title actions keyed by their TitleAction.
+		 */
+		private final EnumMap<TitleAction, Object> actions = new EnumMap<>(TitleAction.class);
+
+		private TitleBinding(Class<?> chatComponentClass) throws Exception {
+			Class<?> titlePacketClass = NMSUtil.getNMSClass("PacketPlayOutTitle");
+			Class<?> titleActionClass = NMSUtil.getNMSClass("PacketPlayOutTitle$EnumTitleAction");
+			packetFactory = NMSBinder.bind(NMSBinder.TitlePacketFactory.class, NMSBinder.LOOKUP.unreflectConstructor(
+					titlePacketClass.getConstructor(titleActionClass, chatComponentClass, int.class, int.class, int.class)));
+			for (Object nmsAction : titleActionClass.getEnumConstants()) {
+				String name = ((Enum<?>) nmsAction).name();
+				for (TitleAction action : TitleAction.values()) {
+					if (action.name().equals(name)) {
+						actions.put(action, nmsAction);
+					}
+				}
+			}
+		}
+
+	}
+
+	/**
+	 * The bindings for the player list header and footer packet.
+	 */
+	private static class TabListBinding {
+
+		private final NMSBinder.ComponentPacketFactory headerPacketFactory;
+		/**
+		 * (Object packet, Object footer)void
+		 */
+		private final MethodHandle footerSetter;
+
+		private TabListBinding(Class<?> chatComponentClass) throws Exception {
+			Class<?> headerFooterPacketClass = NMSUtil.getNMSClass("PacketPlayOutPlayerListHeaderFooter");
+			headerPacketFactory = NMSBinder.bind(NMSBinder.ComponentPacketFactory.class,
+					NMSBinder.LOOKUP.unreflectConstructor(headerFooterPacketClass.getConstructor(chatComponentClass)));
+			Field footerField = headerFooterPacketClass.getDeclaredField("b");
+			if (footerField.getType() != chatComponentClass) {
+				throw new NoSuchFieldException("PacketPlayOutPlayerListHeaderFooter.b is not the footer component.");
+			}
+			footerField.setAccessible(true);
+			footerSetter = NMSBinder.LOOKUP.unreflectSetter(footerField)
+					.asType(MethodType.methodType(void.class, Object.class, Object.class));
+		}
+
+	}
+
+	/**
+	 * The bindings for serializing packets and writing them to connection channels.
+	 */
+	private static class SerializationBinding {
+
+		/**
+		 * (Object connection)Object channel
+		 */
+		private final MethodHandle channelGetter;
+		private final NMSBinder.SerializerFactory serializerFactory;
+		private final NMSBinder.PacketWriter packetWriter;
+		private final NMSBinder.PacketIdGetter packetIdGetter;
+		/**
+		 * The NMS EnumProtocol.PLAY protocol.
+		 */
+		private final Object playProtocol;
+		/**
+		 * The NMS EnumProtocolDirection.CLIENTBOUND direction.
+		 */
+		private final Object clientboundDirection;
+		/**
+		 * The play state packet IDs keyed by the packet class.
+		 */
+		private final Map<Class<?>, Integer> packetIDs = new ConcurrentHashMap<>();
+
+		private SerializationBinding(Field connectionField) throws Exception {
+			Class<?> packetClass = NMSUtil.getNMSClass("Packet");
+			Field networkManagerField = connectionField.getType().getField("networkManager");
+			Field channelField = null;
+			for (Field field : networkManagerField.getType().getFields()) {
+				if (field.getType() == Channel.class) {
+					channelField = field;
+				}
+			}
+			if (channelField == null) {
+				throw new NoSuchFieldException("NetworkManager.channel could not be found.");
+			}
+			channelGetter = MethodHandles.filterReturnValue(NMSBinder.LOOKUP.unreflectGetter(networkManagerField),
+					NMSBinder.LOOKUP.unreflectGetter(channelField))
+					.asType(MethodType.methodType(Object.class, Object.class));
+
+			Class<?> serializerClass = NMSUtil.getNMSClass("PacketDataSerializer");
+			serializerFactory = NMSBinder.bind(NMSBinder.SerializerFactory.class,
+					NMSBinder.LOOKUP.unreflectConstructor(serializerClass.getConstructor(ByteBuf.class)));
+			packetWriter = NMSBinder.bind(NMSBinder.PacketWriter.class,
+					NMSBinder.LOOKUP.unreflect(packetClass.getMethod("b", serializerClass)));
+
+			Class<?> protocolClass = NMSUtil.getNMSClass("EnumProtocol");
+			Class<?> directionClass = NMSUtil.getNMSClass("EnumProtocolDirection");
+			playProtocol = getEnumConstant(protocolClass, "PLAY");
+			clientboundDirection = getEnumConstant(directionClass, "CLIENTBOUND");
+			Method packetIdMethod = null;
+			for (Method method : protocolClass.getMethods()) {
+				Class<?>[] params = method.getParameterTypes();
+				if (params.length == 2 && params[0] == directionClass && params[1] == packetClass) {
+					packetIdMethod = method;
+				}
+			}
+			if (packetIdMethod == null) {
+				throw new NoSuchMethodException("EnumProtocol packet ID lookup could not be found.");
+			}
+			packetIdGetter = NMSBinder.bind(NMSBinder.PacketIdGetter.class, NMSBinder.LOOKUP.unreflect(packetIdMethod));
+		}
+
+	}
+
+	/**
+	 * Writes the value as a protocol VarInt.
+	 *
+	 * @param buffer The buffer to write to.
+	 * @param value The value to write.
+	 */
+	private static void writeVarInt(ByteBuf buffer, int value) {
+		while ((value & ~0x7F) != 0) {
+			buffer.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		buffer.writeByte(value);
+	}
+
+	/**
+	 * Gets the constant of the NMS enum with the given name.
+	 *
+	 * @param enumClass The NMS enum class.
+	 * @param name The name of the constant.
+	 * @return The enum constant.
+	 * @throws NoSuchFieldException If the enum has no constant with the name.
+	 */
+	private static Object getEnumConstant(Class<?> enumClass, String name) throws NoSuchFieldException {
+		for (Object constant : enumClass.getEnumConstants()) {
+			if (((Enum<?>) constant).name().equals(name)) {
+				return constant;
+			}
+		}
+
+		throw new NoSuchFieldException(enumClass.getSimpleName() + "." + name + " could not be found.");
+	}
+
+	/**
+	 * Converts a Throwable thrown by a method handle into an unchecked exception to throw.
+	 *
+	 * @param t The Throwable that was thrown.
+	 * @return The exception to throw.
+	 */
+	private static RuntimeException propagate(Throwable t) {
+		if (t instanceof Error) {
+			throw (Error) t;
+		}
+		return t instanceof RuntimeException ? (RuntimeException) t : new IllegalStateException(t);
+	}
+
+}
@@ -0,0 +1,45 @@
+package com.simplexservers.minecraft.bukkitutils.players;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Hands out JDBC connections to a SQLNameCacheBackend.
+ */
+public interface ConnectionSource {
+
+	/**
+	 * Gets a connection for exclusive use until it is released.
+	 *
+	 * @return A connection to the database.
+	 * @throws SQLException If a connection could not be made or none became free in time.
+	 */
+	Connection getConnection() throws SQLException;
+
+	/**
+	 * Releases a connection gotten from {@link #getConnection()}.
+	 *
+	 * @param conn The connection to release.
+	 */
+	void releaseConnection(Connection conn);
+
+	/**
+	 * Gets the number of times {@link #getConnection()} had to wait for a connection to become free.
+	 *
+	 * @return The number of waits.
+	 */
+	long getWaitCount();
+
+	/**
+	 * Gets the total time {@link #getConnection()} spent waiting for connections to become free.
+	 *
+	 * @return The total wait time in nanoseconds.
+	 */
+	long getWaitNanos();
+
+	/**
+	 * Closes all the connections of the source.
+	 */
+	void close();
+
+}
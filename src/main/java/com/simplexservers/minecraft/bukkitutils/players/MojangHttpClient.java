@@ -0,0 +1,231 @@
+package com.simplexservers.minecraft.bukkitutils.players;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Looks up players through the Mojang API over persistent HTTP connections.
+ *
+ * Responses are always read to the end and closed without disconnecting,
+ * so the JVM's keep-alive cache hands the connection to the next request instead of
+ * opening a new connection and repeating the TLS handshake.
+ * The number of requests in flight is limited to the number of connections the keep-alive cache holds,
+ * since connections past that limit are closed when their request finishes.
+ * A request waits for a free connection no longer than the connect timeout.
+ * This class is thread-safe.
+ */
+public class MojangHttpClient implements MojangLookup {
+
+	/**
+	 * The base URL of the Mojang API.
+	 */
+	public static final String DEFAULT_BASE_URL = "https://api.mojang.com";
+	/**
+	 * The path of username to UUID lookups, followed by the username.
+	 */
+	private static final String UUID_PATH = "/users/profiles/minecraft/";
+	/**
+	 * The path of UUID to name history lookups, followed by the UUID without dashes and /names.
+	 */
+	private static final String NAMES_PATH = "/user/profiles/";
+	/**
+	 * The default time, in milliseconds, to wait for a connection or a response.
+	 */
+	private static final int DEFAULT_TIMEOUT_MILLIS = 5000;
+	/**
+	 * The number of connections the JVM keeps alive per host.
+	 */
+	private static final int KEEP_ALIVE_CONNECTIONS = Integer.getInteger("http.maxConnections", 5);
+
+	/**
+	 * The base URL requests are made to, without a trailing slash.
+	 */
+	private final String baseURL;
+	/**
+	 * The time, in milliseconds, to wait for a free connection and for it to be made.
+	 */
+	private final int connectTimeoutMillis;
+	/**
+	 * The time, in milliseconds, to wait for response data.
+	 */
+	private final int readTimeoutMillis;
+	/**
+	 * A permit for each request that may be in flight.
+	 */
+	private final Semaphore permits;
+
+	/**
+	 * Creates a MojangHttpClient for the Mojang API with the default timeouts.
+	 */
+	public MojangHttpClient() {
+		this(DEFAULT_BASE_URL, DEFAULT_TIMEOUT_MILLIS, DEFAULT_TIMEOUT_MILLIS, KEEP_ALIVE_CONNECTIONS);
+	}
+
+	/**
+	 * Creates a MojangHttpClient.
+	 *
+	 * @param baseURL The base URL of the API, such as a local server in tests.
+	 * @param connectTimeoutMillis The time, in milliseconds, to wait for a free connection and for it to be made,
+	 *                             or 0 to wait indefinitely.
+	 * @param readTimeoutMillis The time, in milliseconds, to wait for response data.
+	 * @param maxConnections The maximum number of requests in flight at once.
+	 *                       Connections past the http.maxConnections system property aren't kept alive.
+	 */
+	public MojangHttpClient(String baseURL, int connectTimeoutMillis, int readTimeoutMillis, int maxConnections) {
+		if (connectTimeoutMillis < 0) {
+			throw new IllegalArgumentException("Invalid connect timeout '" + connectTimeoutMillis + "'. Must not be negative");
+		}
+		if (readTimeoutMillis < 0) {
+			throw new IllegalArgumentException("Invalid read timeout '" + readTimeoutMillis + "'. Must not be negative");
+		}
+		if (maxConnections <= 0) {
+			throw new IllegalArgumentException("Invalid max connections '" + maxConnections + "'. Must be positive");
+		}
+
+		this.baseURL = baseURL.endsWith("/") ? baseURL.substring(0, baseURL.length() - 1) : baseURL;
+		this.connectTimeoutMillis = connectTimeoutMillis;
+		this.readTimeoutMillis = readTimeoutMillis;
+		this.permits = new Semaphore(maxConnections, true);
+	}
+
+	@Override
+	public UUID requestUUID(String username) throws IOException {
+		// URLEncoder encodes spaces as form data, which a path would read as a literal +
+		return request(UUID_PATH + URLEncoder.encode(username, "UTF-8").replace("+", "%20"), reader -> {
+			// {"id":"<uuid without dashes>","name":"<username>"}
+			String id = null;
+			reader.beginObject();
+			while (reader.hasNext()) {
+				if (reader.nextName().equals("id")) {
+					id = reader.nextString();
+				} else {
+					reader.skipValue();
+				}
+			}
+			reader.endObject();
+
+			try {
+				return id == null ? null : UUIDCodec.fromHex(id);
+			} catch (IllegalArgumentException e) {
+				throw new IOException("Invalid UUID '" + id + "' in the Mojang API response.", e);
+			}
+		});
+	}
+
+	@Override
+	public String requestUsername(UUID uuid) throws IOException {
+		return request(NAMES_PATH + uuid.toString().replace("-", "") + "/names", reader -> {
+			// [{"name":"<first username>"},{"name":"<username>","changedToAt":<millis>}]
+			String username = null;
+			reader.beginArray();
+			while (reader.hasNext()) {
+				reader.beginObject();
+				while (reader.hasNext()) {
+					if (reader.nextName().equals("name")) {
+						username = reader.nextString(); // The current name is the last in the history
+					} else {
+						reader.skipValue();
+					}
+				}
+				reader.endObject();
+			}
+			reader.endArray();
+
+			return username;
+		});
+	}
+
+	/**
+	 * Parses a JSON response body as it is received.
+	 */
+	@FunctionalInterface
+	private interface ResponseParser<T> {
+		T parse(JsonReader reader) throws IOException;
+	}
+
+	/**
+	 * Makes a GET request to the API.
+	 *
+	 * @param path The path to request.
+	 * @param parser Parses the response body.
+	 * @return The parsed response, or null if the API has no content for the request.
+	 * @throws IOException If the request failed or the response could not be parsed.
+	 */
+	private <T> T request(String path, ResponseParser<T> parser) throws IOException {
+		try {
+			if (connectTimeoutMillis == 0) {
+				permits.acquire();
+			} else if (!permits.tryAcquire(connectTimeoutMillis, TimeUnit.MILLISECONDS)) {
+				throw new IOException("Timed out waiting for a free connection to the Mojang API.");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for a connection to the Mojang API.");
+		}
+
+		try {
+			HttpURLConnection conn = (HttpURLConnection) new URL(baseURL + path).openConnection();
+			conn.setConnectTimeout(connectTimeoutMillis);
+			conn.setReadTimeout(readTimeoutMillis);
+			conn.setUseCaches(false);
+			conn.setRequestProperty("Accept", "application/json");
+
+			int status = conn.getResponseCode();
+			if (status == HttpURLConnection.HTTP_OK) {
+				try (InputStream in = conn.getInputStream()) {
+					JsonReader reader = new JsonReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+					T result;
+					try {
+						result = parser.parse(reader);
+					} catch (IllegalStateException | JsonParseException e) {
+						// Thrown for a body of the wrong shape, such as an error page served with a 200 status
+						throw new IOException("The Mojang API responded to " + path + " with an invalid body.", e);
+					}
+					drain(in);
+					return result;
+				}
+			}
+
+			// The error body must also be consumed for the connection to be reused
+			try (InputStream err = conn.getErrorStream()) {
+				drain(err);
+			}
+			if (status == HttpURLConnection.HTTP_NO_CONTENT || status == HttpURLConnection.HTTP_NOT_FOUND) {
+				return null; // There is no such player
+			}
+			throw new IOException("The Mojang API responded to " + path + " with status " + status + ".");
+		} finally {
+			permits.release();
+		}
+	}
+
+	/**
+	 * Reads the rest of the stream so its connection can be reused.
+	 *
+	 * @param in The stream to drain, or null if there is no stream.
+	 * @throws IOException If an error occurred reading the stream.
+	 */
+	private static void drain(InputStream in) throws IOException {
+		if (in == null) {
+			return;
+		}
+
+		byte[] buffer = new byte[512];
+		while (in.read(buffer) != -1) {
+			// Discard the remaining data
+		}
+	}
+
+}
@@ -0,0 +1,53 @@
+package com.simplexservers.minecraft.bukkitutils.players;
+
+import com.simplexservers.minecraft.mojangapi.MojangAPI;
+import com.simplexservers.minecraft.mojangapi.MojangAPIException;
+
+import java.io.IOException;
+import java.util.UUID;
+
+/**
+ * Looks up players through the Mojang API when they can't be resolved locally.
+ *
+ * @see NameResolver#NameResolver(NameCache, MojangLookup)
+ */
+public interface MojangLookup {
+
+	/**
+	 * Looks up players with the static MojangAPI requests, which open a new connection for every request.
+	 *
+	 * @see MojangHttpClient
+	 */
+	MojangLookup MOJANG_API = new MojangLookup() {
+		@Override
+		public UUID requestUUID(String username) throws MojangAPIException {
+			return MojangAPI.requestUUIDForUsername(username);
+		}
+
+		@Override
+		public String requestUsername(UUID uuid) throws MojangAPIException {
+			return MojangAPI.requestUsernameForUUID(uuid);
+		}
+	};
+
+	/**
+	 * Requests the UUID of the player with the given username.
+	 *
+	 * @param username The username of the player.
+	 * @return The UUID of the player, or null if there is no player with the username.
+	 * @throws MojangAPIException If the request failed.
+	 * @throws IOException If the request could not be made.
+	 */
+	UUID requestUUID(String username) throws MojangAPIException, IOException;
+
+	/**
+	 * Requests the latest username of the player with the given UUID.
+	 *
+	 * @param uuid The UUID of the player.
+	 * @return The username of the player, or null if there is no player with the UUID.
+	 * @throws MojangAPIException If the request failed.
+	 * @throws IOException If the request could not be made.
+	 */
+	String requestUsername(UUID uuid) throws MojangAPIException, IOException;
+
+}
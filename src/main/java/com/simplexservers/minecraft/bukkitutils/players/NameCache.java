@@ -1,18 +1,18 @@
 package com.simplexservers.minecraft.bukkitutils.players;
 
 import com.simplexservers.minecraft.fileutils.db.DBConnection;
-import com.simplexservers.minecraft.mojangapi.MinecraftUtil;
 import com.simplexservers.minecraft.promptutils.Time;
 import org.bukkit.Bukkit;
 import org.bukkit.plugin.java.JavaPlugin;
 import org.bukkit.scheduler.BukkitRunnable;
 import org.bukkit.scheduler.BukkitTask;
 
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 
@@ -29,15 +29,14 @@ public class NameCache {
 	 * The number of cached player names to keep in memory.
 	 */
 	private static final int RAM_CACHE_LIMIT = 10;
-
 	/**
 	 * The JavaPlugin to register tasks under.
 	 */
 	private JavaPlugin plugin;
 	/**
-	 * The connection to the database with the player cache.
+	 * The storage of the player cache.
 	 */
-	private DBConnection dbConn;
+	private NameCacheBackend backend;
 	/**
 	 * If the database has been initialized.
 	 */
@@ -54,6 +53,14 @@ public class NameCache {
 	 * The repeating task to flush the player cache.
 	 */
 	private BukkitTask flushCacheTask = null;
+	/**
+	 * The players waiting to be written to the database in the next batch.
+	 */
+	private final Map<UUID, String> pendingWrites = new ConcurrentHashMap<>();
+	/**
+	 * If a task is scheduled to write the pending players.
+	 */
+	private final AtomicBoolean writeScheduled = new AtomicBoolean(false);
 
 	/**
 	 * The cache of player names stored in memory.
@@ -66,14 +73,24 @@ public class NameCache {
 	});
 
 	/**
-	 * Creates a NameCache.
+	 * Creates a NameCache stored in a SQLite database.
 	 *
 	 * @param plugin The JavaPlugin to register Bukkit calls under.
-	 * @param dbConn The connection to the database with the player cache.
+	 * @param dbConn The connection to the SQLite database with the player cache.
 	 */
 	public NameCache(JavaPlugin plugin, DBConnection dbConn) {
+		this(plugin, new SQLNameCacheBackend(SQLDialect.SQLITE, new SingleConnectionSource(dbConn::getConnection, dbConn::close)));
+	}
+
+	/**
+	 * Creates a NameCache.
+	 *
+	 * @param plugin The JavaPlugin to register Bukkit calls under.
+	 * @param backend The storage of the player cache.
+	 */
+	public NameCache(JavaPlugin plugin, NameCacheBackend backend) {
 		this.plugin = plugin;
-		this.dbConn = dbConn;
+		this.backend = backend;
 	}
 
 	/**
@@ -83,11 +100,9 @@ public class NameCache {
 	 */
 	public boolean initializeDatabase() {
 		try {
-			String sql =    "CREATE TABLE IF NOT EXISTS player_uuid_cache " +
-					"(uuid     CHAR(32)         PRIMARY KEY  NOT NULL," +
-					" username VARCHAR(16)                   NOT NULL)";
-			Statement stmt = dbConn.getConnection().createStatement();
-			stmt.execute(sql);
+			backend.initialize();
+			// Players may remain from a previous run or a migration
+			hasCachedPlayers.set(backend.count() > 0);
 
 			return dbInitialized = true;
 		} catch (SQLException e) {
@@ -98,10 +113,11 @@ public class NameCache {
 	}
 
 	/**
-	 * Closes the connection to the database.
+	 * Closes the connection to the database, writing any pending players first.
 	 */
 	public void closeDBConnection() {
-		dbConn.close();
+		writePendingPlayers();
+		backend.close();
 	}
 
 	/**
@@ -114,52 +130,154 @@ public class NameCache {
 
 	/**
 	 * Caches the UUID/Username combo in the database asynchronously.
+	 * Players cached within the same tick are written to the database in a single batch.
 	 *
 	 * @param uuid The UUID of the player.
 	 * @param username The username of the player.
 	 */
 	public void cachePlayerAsync(UUID uuid, String username) {
-		new BukkitRunnable() {
-			@Override
-			public void run() {
-				cachePlayer(uuid, username);
+		cacheInRAM(uuid, username);
+		pendingWrites.put(uuid, username);
+
+		if (writeScheduled.compareAndSet(false, true)) {
+			new BukkitRunnable() {
+				@Override
+				public void run() {
+					writePendingPlayers();
+				}
+			}.runTaskAsynchronously(plugin);
+		}
+	}
+
+	/**
+	 * Writes the players queued by {@link #cachePlayerAsync(UUID, String)} to the database.
+	 */
+	private void writePendingPlayers() {
+		// Clear the flag first so players queued while writing schedule another write
+		writeScheduled.set(false);
+
+		Map<UUID, String> batch = new HashMap<>();
+		for (Map.Entry<UUID, String> entry : pendingWrites.entrySet()) {
+			if (pendingWrites.remove(entry.getKey(), entry.getValue())) {
+				batch.put(entry.getKey(), entry.getValue());
 			}
-		}.runTaskAsynchronously(plugin);
+		}
+		if (batch.isEmpty()) {
+			return;
+		}
+
+		try {
+			backend.putAll(batch);
+			hasCachedPlayers.set(true);
+		} catch (SQLException e) {
+			plugin.getLogger().log(Level.SEVERE, "Could not cache the players in the database.", e);
+		}
 	}
 
 	/**
 	 * Caches the UUID/Username combo in the database.
+	 * Any other UUID cached with the username is removed, since the username now belongs to this player,
+	 * and a previous username of the player is replaced.
 	 * This method is thread-safe.
 	 *
 	 * @param uuid The UUID of the player.
 	 * @param username The username of the player.
 	 */
 	public void cachePlayer(UUID uuid, String username) {
-		// Cache the player in the RAM cache
-		synchronized (ramNameCache) {
-			ramNameCache.put(uuid, username);
-		}
+		cacheInRAM(uuid, username);
 
 		// Cache the player in the database
 		try {
-			String sql = "INSERT OR IGNORE INTO player_uuid_cache VALUES(?, ?); UPDATE player_uuid_cache SET username = ? WHERE uuid = ?";
-			synchronized (dbConn) {
-				PreparedStatement stmt = dbConn.getConnection().prepareStatement(sql);
-				String uuidNoHyphens = uuid.toString().replace("-", "");
-				stmt.setString(1, uuidNoHyphens);
-				stmt.setString(2, username);
-				stmt.executeUpdate();
-
-				hasCachedPlayers.set(true);
-			}
+			backend.put(uuid, username);
+			hasCachedPlayers.set(true);
 		} catch (SQLException e) {
 			plugin.getLogger().log(Level.SEVERE, "Could not cache the player in the database.", e);
 		}
 	}
 
+	/**
+	 * Caches the UUID/Username combo in the RAM cache, removing any other UUID cached with the username.
+	 *
+	 * @param uuid The UUID of the player.
+	 * @param username The username of the player.
+	 */
+	private void cacheInRAM(UUID uuid, String username) {
+		synchronized (ramNameCache) {
+			ramNameCache.values().removeIf(cachedName -> cachedName.equalsIgnoreCase(username));
+			ramNameCache.put(uuid, username);
+		}
+	}
+
+	/**
+	 * Writes the cached players to the stream as a binary snapshot.
+	 * The players are streamed from the database as they are written, without being held in memory.
+	 * Players cached while the snapshot is written may or may not be included.
+	 *
+	 * @param out The stream to write the snapshot to, left open when finished.
+	 * @param compress If the snapshot should be GZIP compressed.
+	 * @return The number of players written.
+	 * @throws IOException If an error occurred writing the snapshot.
+	 * @throws SQLException If an error occurred reading the database.
+	 */
+	public long exportSnapshot(OutputStream out, boolean compress) throws IOException, SQLException {
+		SnapshotExporter exporter = new SnapshotExporter(out, compress);
+		backend.export(exporter);
+		exporter.writer.finish();
+
+		return exporter.count;
+	}
+
+	/**
+	 * Writes the players of an export to a snapshot, starting it once their count is known.
+	 */
+	private static class SnapshotExporter implements NameCacheBackend.ExportConsumer {
+
+		private final OutputStream out;
+		private final boolean compress;
+		private NameCacheSnapshot.Writer writer;
+		private long count;
+
+		private SnapshotExporter(OutputStream out, boolean compress) {
+			this.out = out;
+			this.compress = compress;
+		}
+
+		@Override
+		public void begin(long count) throws IOException {
+			this.count = count;
+			this.writer = new NameCacheSnapshot.Writer(out, count, compress);
+		}
+
+		@Override
+		public void accept(UUID uuid, String username) throws IOException {
+			writer.write(uuid, username);
+		}
+
+	}
+
+	/**
+	 * Adds the players in the binary snapshot to the cache, replacing the cached usernames of the same players.
+	 * The players are inserted in a single transaction, so either all or none of them are imported.
+	 * Imported players are flushed like any other cached player by the cache flush task.
+	 *
+	 * @param in The stream to read the snapshot from.
+	 * @return The number of players imported.
+	 * @throws IOException If an error occurred reading the snapshot.
+	 * @throws SQLException If an error occurred writing to the database.
+	 */
+	public long importSnapshot(InputStream in) throws IOException, SQLException {
+		long imported = backend.importAll(new NameCacheSnapshot.Reader(in));
+		if (imported > 0) {
+			hasCachedPlayers.set(true);
+		}
+		return imported;
+	}
+
 	/**
 	 * Starts the repeating task to flush the cache database of
 	 * players that aren't online.
+	 * A shared database is never flushed, since the players of the other servers
+	 * aren't online on this one.
 	 */
 	public void startCacheFlushTask() {
 		flushCacheTask = new BukkitRunnable() {
@@ -169,22 +287,14 @@ public class NameCache {
 					ramNameCache.clear();
 				}
 
-				if (hasCachedPlayers.get()) {
-					StringBuilder where = new StringBuilder();
-					Bukkit.getOnlinePlayers().forEach(player -> {
-						where.append(where.length() == 0 ? " WHERE" : " AND");
-						where.append(" uuid != '" + player.getUniqueId().toString().replace("-", "") + "'");
-					});
+				if (hasCachedPlayers.get() && !backend.isShared()) {
+					Set<UUID> onlinePlayers = new HashSet<>();
+					Bukkit.getOnlinePlayers().forEach(player -> onlinePlayers.add(player.getUniqueId()));
 
 					try {
-						String sql = "DELETE FROM player_uuid_cache" + where;
-						synchronized (dbConn) {
-							Statement stmt = dbConn.getConnection().createStatement();
-							stmt.execute(sql);
-						}
-
-						if (where.length() == 0) { // Everything would be clear
-							hasCachedPlayers.set(false);
+						backend.retainOnly(onlinePlayers);
+						if (onlinePlayers.isEmpty()) {
+							hasCachedPlayers.set(false); // Everything was cleared
 						}
 					} catch (SQLException e) {
 						plugin.getLogger().log(Level.SEVERE, "Could not flush the player cache in the database.", e);
@@ -222,7 +332,7 @@ public class NameCache {
 	}
 
 	/**
-	 * Gets the UUID stored in cache that is attached to the given username.
+	 * Gets the UUID stored in cache that is attached to the given username, compared case-insensitively.
 	 * Returns null if the UUID could not be retrieved from the cache.
 	 *
 	 * @param username The username of the player to get the UUID for.
@@ -234,7 +344,7 @@ public class NameCache {
 			byte ramEntryCount = 0;
 			UUID ramUUID = null;
 			for (Map.Entry<UUID, String> entry : ramNameCache.entrySet()) {
-				if (entry.getValue().equals(username)) {
+				if (entry.getValue().equalsIgnoreCase(username)) {
 					if (ramEntryCount++ == 0) {
 						ramUUID = entry.getKey();
 					} else {
@@ -252,31 +362,14 @@ public class NameCache {
 		// Check the database cache
 		if (dbInitialized) {
 			try {
-				String sql = "SELECT uuid FROM player_uuid_cache WHERE username = ?";
-				synchronized (dbConn) {
-					PreparedStatement stmt = dbConn.getConnection().prepareStatement(sql);
-					stmt.setString(1, username);
-					ResultSet res = stmt.executeQuery();
-
-					byte entryCount = 0;
-					String uuidString = null;
-					while (res.next()) {
-						if (entryCount++ == 0) {
-							uuidString = res.getString("uuid");
-						} else {
-							break; // We have multiple entries
-						}
+				Map.Entry<UUID, String> player = backend.getPlayer(username);
+				if (player != null) {
+					// Save the UUID in RAM cache under the stored username, the lookup's case may differ
+					synchronized (ramNameCache) {
+						ramNameCache.put(player.getKey(), player.getValue());
 					}
 
-					if (entryCount == 1) {
-						UUID uuid = MinecraftUtil.uuidFromString(uuidString, false);
-						// Save the UUID in RAM cache
-						synchronized (ramNameCache) {
-							ramNameCache.put(uuid, username);
-						}
-
-						return uuid;
-					}
+					return player.getKey();
 				}
 			} catch (SQLException e) {
 				Bukkit.getLogger().log(Level.SEVERE, "Could not query the player cache database!", e);
@@ -306,21 +399,14 @@ public class NameCache {
 		// Check the database cache
 		if (dbInitialized) {
 			try {
-				String sql = "SELECT username FROM player_uuid_cache WHERE uuid = ?";
-				synchronized (dbConn) {
-					PreparedStatement stmt = dbConn.getConnection().prepareStatement(sql);
-					stmt.setString(1, uuid.toString().replace("-", ""));
-					ResultSet res = stmt.executeQuery();
-
-					if (res.next()) { // There will never be multiple entries since uuid is the primary key
-						String username = res.getString("username");
-						// Save the username in RAM cache
-						synchronized (ramNameCache) {
-							ramNameCache.put(uuid, username);
-						}
-
-						return username;
+				String username = backend.getUsername(uuid);
+				if (username != null) {
+					// Save the username in RAM cache
+					synchronized (ramNameCache) {
+						ramNameCache.put(uuid, username);
 					}
+
+					return username;
 				}
 			} catch (SQLException e) {
 				Bukkit.getLogger().log(Level.SEVERE, "Could not query the player cache database!", e);
@@ -0,0 +1,172 @@
+package com.simplexservers.minecraft.bukkitutils.players;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * The storage of a NameCache's UUID to username mappings.
+ * Implementations must be thread-safe.
+ *
+ * @see SQLNameCacheBackend
+ */
+public interface NameCacheBackend {
+
+	/**
+	 * Receives the stored players one at a time.
+	 */
+	@FunctionalInterface
+	interface EntryConsumer {
+		void accept(UUID uuid, String username) throws IOException;
+	}
+
+	/**
+	 * Provides players to store one at a time.
+	 */
+	interface EntrySource {
+
+		/**
+		 * Advances to the next player.
+		 *
+		 * @return true if there is a next player, false if all the players have been provided.
+		 * @throws IOException If an error occurred reading the next player.
+		 */
+		boolean next() throws IOException;
+
+		UUID getUUID();
+
+		String getUsername();
+
+	}
+
+	/**
+	 * Receives the stored players of an export one at a time, after their count.
+	 */
+	interface ExportConsumer extends EntryConsumer {
+
+		/**
+		 * Called once before any player is passed to the consumer.
+		 *
+		 * @param count The number of players that will be passed to the consumer.
+		 * @throws IOException If the consumer failed.
+		 */
+		void begin(long count) throws IOException;
+
+	}
+
+	/**
+	 * Gets if the storage may be shared with other servers, whose players aren't online on this server.
+	 *
+	 * @return true if the storage is shared.
+	 */
+	boolean isShared();
+
+	/**
+	 * Creates or upgrades the storage.
+	 *
+	 * @throws SQLException If the storage could not be initialized.
+	 */
+	void initialize() throws SQLException;
+
+	/**
+	 * Stores the player, replacing their previous username
+	 * and removing any other player stored with the same username.
+	 *
+	 * @param uuid The UUID of the player.
+	 * @param username The username of the player.
+	 * @throws SQLException If the player could not be stored.
+	 */
+	void put(UUID uuid, String username) throws SQLException;
+
+	/**
+	 * Stores all the players in a single batch, as with {@link #put(UUID, String)}.
+	 *
+	 * @param players The usernames of the players keyed by their UUID.
+	 * @throws SQLException If the players could not be stored.
+	 */
+	void putAll(Map<UUID, String> players) throws SQLException;
+
+	/**
+	 * Stores all the players from the source in a single transaction, replacing their previous usernames.
+	 *
+	 * @param source The players to store.
+	 * @return The number of players stored.
+	 * @throws SQLException If the players could not be stored, in which case none are.
+	 * @throws IOException If an error occurred reading the players.
+	 */
+	long importAll(EntrySource source) throws SQLException, IOException;
+
+	/**
+	 * Gets the UUID of the player stored with the username, compared case-insensitively.
+	 *
+	 * @param username The username of the player.
+	 * @return The UUID of the player, or null if no player or more than one player is stored with the username.
+	 * @throws SQLException If the storage could not be queried.
+	 */
+	UUID getUUID(String username) throws SQLException;
+
+	/**
+	 * Gets the UUID and the stored username of the player stored with the username, compared case-insensitively.
+	 * The stored username may differ in case from the one looked up.
+	 *
+	 * @param username The username of the player.
+	 * @return The player's UUID mapped to their stored username,
+	 * or null if no player or more than one player is stored with the username.
+	 * @throws SQLException If the storage could not be queried.
+	 */
+	Map.Entry<UUID, String> getPlayer(String username) throws SQLException;
+
+	/**
+	 * Gets the username of the player.
+	 *
+	 * @param uuid The UUID of the player.
+	 * @return The username of the player, or null if the player isn't stored.
+	 * @throws SQLException If the storage could not be queried.
+	 */
+	String getUsername(UUID uuid) throws SQLException;
+
+	/**
+	 * Gets the number of stored players.
+	 *
+	 * @return The number of stored players.
+	 * @throws SQLException If the storage could not be queried.
+	 */
+	long count() throws SQLException;
+
+	/**
+	 * Passes every stored player to the consumer, ordered by UUID.
+	 *
+	 * @param consumer Receives the players.
+	 * @throws SQLException If the storage could not be queried.
+	 * @throws IOException If the consumer failed.
+	 */
+	void forEach(EntryConsumer consumer) throws SQLException, IOException;
+
+	/**
+	 * Passes the number of stored players and then every stored player, ordered by UUID, to the consumer.
+	 * The count and the players are read from the same consistent view of the storage,
+	 * so players stored during the export don't make the count disagree with the players passed.
+	 *
+	 * @param consumer Receives the count and the players.
+	 * @throws SQLException If the storage could not be queried.
+	 * @throws IOException If the consumer failed.
+	 */
+	void export(ExportConsumer consumer) throws SQLException, IOException;
+
+	/**
+	 * Removes every stored player except the given ones.
+	 * This removes the players of other servers from shared storage, see {@link #isShared()}.
+	 *
+	 * @param uuids The UUIDs of the players to keep.
+	 * @throws SQLException If the players could not be removed.
+	 */
+	void retainOnly(Set<UUID> uuids) throws SQLException;
+
+	/**
+	 * Closes the storage.
+	 */
+	void close();
+
+}
@@ -1,9 +1,9 @@
 package com.simplexservers.minecraft.bukkitutils.players;
 
-import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
-import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
 
 /**
  * The hook for NameResolver cache to Bukkit.
@@ -25,14 +25,19 @@ public class NameCacheListener implements Listener {
 	}
 
 	/**
-	 * Handles caching a player when the join the server.
+	 * Handles caching a player before they join the server.
+	 * The event is called off the main thread, so the player is cached directly
+	 * and is in the cache by the time they join.
 	 *
-	 * @param event The Bukkit PlayerJoinEvent.
+	 * @param event The Bukkit AsyncPlayerPreLoginEvent.
 	 */
-	@EventHandler
-	public void onPlayerJoin(PlayerJoinEvent event) {
-		Player player = event.getPlayer();
-		cache.cachePlayerAsync(player.getUniqueId(), player.getName());
+	@EventHandler(priority = EventPriority.MONITOR)
+	public void onPlayerPreLogin(AsyncPlayerPreLoginEvent event) {
+		if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+			return; // The player won't join
+		}
+
+		cache.cachePlayer(event.getUniqueId(), event.getName());
 	}
 
 }
@@ -0,0 +1,261 @@
+package com.simplexservers.minecraft.bukkitutils.players;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The binary snapshot format of the name cache.
+ *
+ * A snapshot is a header of the magic number, the format version and flags,
+ * followed by the optionally GZIP compressed body: the record count and then the records sorted by UUID.
+ * Each record stores its UUID as the difference from the previous record's UUID as VarLongs
+ * and its username as a length-prefixed UTF-8 string.
+ */
+class NameCacheSnapshot {
+
+	/**
+	 * The magic number the snapshot starts with, "NCSN".
+	 */
+	private static final int MAGIC = 0x4E43534E;
+	/**
+	 * The version of the snapshot format.
+	 */
+	private static final int VERSION = 1;
+	/**
+	 * The flag for the body being GZIP compressed.
+	 */
+	private static final int FLAG_GZIP = 1;
+	/**
+	 * The longest username a snapshot may hold, in bytes.
+	 */
+	private static final int MAX_USERNAME_BYTES = 64;
+
+	/**
+	 * Writes a snapshot's records, which are stored most compactly in ascending unsigned UUID order.
+	 */
+	static class Writer {
+
+		private final DataOutputStream out;
+		private long remaining;
+		private UUID previous = new UUID(0, 0);
+
+		/**
+		 * Writes the snapshot header and record count.
+		 *
+		 * @param stream The stream to write the snapshot to, left open when finished.
+		 * @param count The number of records that will be written.
+		 * @param compress If the body should be GZIP compressed.
+		 * @throws IOException If an error occurred writing to the stream.
+		 */
+		Writer(OutputStream stream, long count, boolean compress) throws IOException {
+			DataOutputStream header = new DataOutputStream(stream);
+			header.writeInt(MAGIC);
+			header.writeByte(VERSION);
+			header.writeByte(compress ? FLAG_GZIP : 0);
+			header.flush();
+
+			OutputStream body = new NonClosingOutputStream(stream);
+			if (compress) {
+				body = new GZIPOutputStream(body, 64 * 1024);
+			}
+			this.out = new DataOutputStream(new BufferedOutputStream(body, 64 * 1024));
+			this.remaining = count;
+			writeVarLong(out, count);
+		}
+
+		/**
+		 * Writes the record.
+		 *
+		 * @param uuid The UUID of the player.
+		 * @param username The username of the player.
+		 * @throws IOException If an error occurred writing to the stream.
+		 */
+		void write(UUID uuid, String username) throws IOException {
+			if (remaining-- <= 0) {
+				throw new IllegalStateException("More records were written than the snapshot's count");
+			}
+
+			long mostSigBits = uuid.getMostSignificantBits();
+			long leastSigBits = uuid.getLeastSignificantBits();
+			long mostSigDelta = mostSigBits - previous.getMostSignificantBits();
+			writeVarLong(out, mostSigDelta);
+			if (mostSigDelta == 0) {
+				writeVarLong(out, leastSigBits - previous.getLeastSignificantBits());
+			} else {
+				out.writeLong(leastSigBits); // Unrelated to the previous record's
+			}
+
+			byte[] name = username.getBytes(StandardCharsets.UTF_8);
+			writeVarLong(out, name.length);
+			out.write(name);
+			previous = uuid;
+		}
+
+		/**
+		 * Finishes the snapshot, leaving the underlying stream open.
+		 *
+		 * @throws IOException If an error occurred writing to the stream.
+		 */
+		void finish() throws IOException {
+			if (remaining != 0) {
+				throw new IllegalStateException("Fewer records were written than the snapshot's count");
+			}
+
+			out.close(); // Finishes the compression without closing the underlying stream
+		}
+
+	}
+
+	/**
+	 * Reads a snapshot's records.
+	 */
+	static class Reader implements NameCacheBackend.EntrySource {
+
+		private final DataInputStream in;
+		private final long count;
+		private long read = 0;
+		private UUID previous = new UUID(0, 0);
+		private UUID uuid = null;
+		private String username = null;
+
+		/**
+		 * Reads the snapshot header and record count.
+		 *
+		 * @param stream The stream to read the snapshot from.
+		 * @throws IOException If an error occurred reading the stream or it isn't a snapshot.
+		 */
+		Reader(InputStream stream) throws IOException {
+			DataInputStream header = new DataInputStream(stream);
+			if (header.readInt() != MAGIC) {
+				throw new IOException("The stream is not a name cache snapshot.");
+			}
+			int version = header.readUnsignedByte();
+			if (version != VERSION) {
+				throw new IOException("Unsupported name cache snapshot version " + version + ".");
+			}
+			int flags = header.readUnsignedByte();
+
+			InputStream body = stream;
+			if ((flags & FLAG_GZIP) != 0) {
+				body = new GZIPInputStream(body, 64 * 1024);
+			}
+			this.in = new DataInputStream(new BufferedInputStream(body, 64 * 1024));
+			this.count = readVarLong(in);
+		}
+
+		long getCount() {
+			return count;
+		}
+
+		/**
+		 * Reads the next record.
+		 *
+		 * @return true if a record was read, false if all the records have been read.
+		 * @throws IOException If an error occurred reading the stream or the record is corrupt.
+		 */
+		@Override
+		public boolean next() throws IOException {
+			if (read >= count) {
+				return false;
+			}
+
+			long mostSigDelta = readVarLong(in);
+			long mostSigBits = previous.getMostSignificantBits() + mostSigDelta;
+			long leastSigBits = mostSigDelta == 0 ? previous.getLeastSignificantBits() + readVarLong(in) : in.readLong();
+
+			long nameLength = readVarLong(in);
+			if (nameLength < 0 || nameLength > MAX_USERNAME_BYTES) {
+				throw new IOException("Corrupt name cache snapshot, invalid username length " + nameLength + ".");
+			}
+			byte[] name = new byte[(int) nameLength];
+			in.readFully(name);
+
+			uuid = previous = new UUID(mostSigBits, leastSigBits);
+			username = new String(name, StandardCharsets.UTF_8);
+			read++;
+			return true;
+		}
+
+		@Override
+		public UUID getUUID() {
+			return uuid;
+		}
+
+		@Override
+		public String getUsername() {
+			return username;
+		}
+
+	}
+
+	/**
+	 * Writes the value as an unsigned VarLong.
+	 *
+	 * @param out The stream to write to.
+	 * @param value The value to write.
+	 * @throws IOException If an error occurred writing to the stream.
+	 */
+	private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+		while ((value & ~0x7FL) != 0) {
+			out.writeByte((int) (value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte((int) value);
+	}
+
+	/**
+	 * Reads an unsigned VarLong.
+	 *
+	 * @param in The stream to read from.
+	 * @return The value read.
+	 * @throws IOException If an error occurred reading the stream or the VarLong is too long.
+	 */
+	private static long readVarLong(DataInputStream in) throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			int b = in.read();
+			if (b < 0) {
+				throw new EOFException();
+			}
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+
+		throw new IOException("Corrupt name cache snapshot, VarLong is too long.");
+	}
+
+	/**
+	 * Passes writes to a stream but doesn't close it, so finishing a snapshot leaves the caller's stream open.
+	 */
+	private static class NonClosingOutputStream extends FilterOutputStream {
+
+		private NonClosingOutputStream(OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+		}
+
+		@Override
+		public void close() throws IOException {
+			flush();
+		}
+
+	}
+
+}
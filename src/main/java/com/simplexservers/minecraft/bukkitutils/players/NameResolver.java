@@ -1,12 +1,12 @@
 package com.simplexservers.minecraft.bukkitutils.players;
 
 import com.simplexservers.minecraft.mojangapi.MinecraftUtil;
-import com.simplexservers.minecraft.mojangapi.MojangAPI;
 import com.simplexservers.minecraft.mojangapi.MojangAPIException;
 import org.bukkit.Bukkit;
 import org.bukkit.OfflinePlayer;
 import org.bukkit.entity.Player;
 
+import java.io.IOException;
 import java.util.UUID;
 import java.util.logging.Level;
 
@@ -19,14 +19,30 @@ public class NameResolver {
 	 * The cache of names.
 	 */
 	private NameCache cache;
+	/**
+	 * The lookup for players that aren't online or cached.
+	 */
+	private MojangLookup mojangLookup;
 
 	/**
-	 * Creates a NameResolver with cache storage.
+	 * Creates a NameResolver with cache storage that looks up missing players
+	 * over persistent connections to the Mojang API.
 	 *
 	 * @param cache The storage for name cache.
 	 */
 	public NameResolver(NameCache cache) {
+		this(cache, new MojangHttpClient());
+	}
+
+	/**
+	 * Creates a NameResolver with cache storage that looks up missing players with the given lookup.
+	 *
+	 * @param cache The storage for name cache.
+	 * @param mojangLookup The lookup for players that aren't online or cached.
+	 */
+	public NameResolver(NameCache cache, MojangLookup mojangLookup) {
 		this.cache = cache;
+		this.mojangLookup = mojangLookup;
 	}
 
 	/**
@@ -81,7 +97,7 @@ public class NameResolver {
 
 		// Contact the Mojang API
 		try {
-			UUID mojangUUID = MojangAPI.requestUUIDForUsername(username);
+			UUID mojangUUID = mojangLookup.requestUUID(username);
 
 			if (mojangUUID != null) {
 				// Cache the found UUID
@@ -89,7 +105,7 @@ public class NameResolver {
 
 				return mojangUUID;
 			}
-		} catch (MojangAPIException e) {
+		} catch (MojangAPIException | IOException e) {
 			Bukkit.getLogger().log(Level.WARNING, "Could not make a request to the MojangAPI.", e);
 		}
 
@@ -121,7 +137,7 @@ public class NameResolver {
 
 		// Contact the Mojang API
 		try {
-			String mojangUsername = MojangAPI.requestUsernameForUUID(uuid);
+			String mojangUsername = mojangLookup.requestUsername(uuid);
 
 			if (mojangUsername != null) {
 				// Cache the found username
@@ -129,7 +145,7 @@ public class NameResolver {
 
 				return mojangUsername;
 			}
-		} catch (MojangAPIException e) {
+		} catch (MojangAPIException | IOException e) {
 			Bukkit.getLogger().log(Level.WARNING, "Could not make a request to the MojangAPI.", e);
 		}
 
@@ -0,0 +1,212 @@
+package com.simplexservers.minecraft.bukkitutils.players;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded pool of JDBC connections.
+ *
+ * At most the maximum number of connections are open or in use at once.
+ * Connections that sat idle for a while are checked with {@link Connection#isValid(int)}
+ * before being handed out, and broken connections are replaced.
+ * This class is thread-safe.
+ */
+public class PooledConnectionSource implements ConnectionSource {
+
+	/**
+	 * Opens new connections to the database.
+	 */
+	@FunctionalInterface
+	public interface ConnectionFactory {
+		Connection create() throws SQLException;
+	}
+
+	/**
+	 * The time, in milliseconds, a connection may sit idle before it is validated when handed out.
+	 */
+	private static final long IDLE_VALIDATION_MILLIS = 30000L;
+	/**
+	 * The time, in seconds, a validation may take before the connection is considered broken.
+	 */
+	private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+	/**
+	 * Opens new connections to the database.
+	 */
+	private final ConnectionFactory factory;
+	/**
+	 * The time, in milliseconds, to wait for a connection to become free.
+	 */
+	private final long borrowTimeoutMillis;
+	/**
+	 * A permit for each connection that may be open.
+	 */
+	private final Semaphore permits;
+	/**
+	 * The idle connections, most recently released first.
+	 */
+	private final Deque<IdleConnection> idle = new ArrayDeque<>();
+	/**
+	 * If the pool has been closed.
+	 */
+	private volatile boolean closed = false;
+	/**
+	 * The number of times a borrower had to wait for a connection.
+	 */
+	private final AtomicLong waitCount = new AtomicLong();
+	/**
+	 * The total time, in nanoseconds, borrowers waited for connections.
+	 */
+	private final AtomicLong waitNanos = new AtomicLong();
+
+	/**
+	 * Creates a PooledConnectionSource.
+	 *
+	 * @param factory Opens new connections to the database.
+	 * @param maxConnections The maximum number of connections open at once.
+	 * @param borrowTimeoutMillis The time, in milliseconds, to wait for a connection to become free.
+	 */
+	public PooledConnectionSource(ConnectionFactory factory, int maxConnections, long borrowTimeoutMillis) {
+		if (maxConnections <= 0) {
+			throw new IllegalArgumentException("Invalid max connections '" + maxConnections + "'. Must be positive");
+		}
+
+		this.factory = factory;
+		this.borrowTimeoutMillis = borrowTimeoutMillis;
+		this.permits = new Semaphore(maxConnections, true);
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		if (closed) {
+			throw new SQLException("The connection pool is closed.");
+		}
+
+		try {
+			if (!permits.tryAcquire()) {
+				long start = System.nanoTime();
+				boolean acquired = permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS);
+				waitNanos.addAndGet(System.nanoTime() - start);
+				waitCount.incrementAndGet();
+				if (!acquired) {
+					throw new SQLException("Timed out waiting for a free database connection.");
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrupted while waiting for a free database connection.", e);
+		}
+
+		try {
+			IdleConnection idleConn;
+			while ((idleConn = pollIdle()) != null) {
+				if (isHealthy(idleConn)) {
+					return idleConn.conn;
+				}
+				closeQuietly(idleConn.conn);
+			}
+
+			return factory.create();
+		} catch (SQLException | RuntimeException e) {
+			permits.release();
+			throw e;
+		}
+	}
+
+	@Override
+	public void releaseConnection(Connection conn) {
+		try {
+			if (closed || conn.isClosed()) {
+				closeQuietly(conn);
+				return;
+			}
+
+			if (!conn.getAutoCommit()) {
+				// Don't hand out a connection in the middle of a transaction
+				conn.rollback();
+				conn.setAutoCommit(true);
+			}
+
+			synchronized (idle) {
+				idle.push(new IdleConnection(conn, System.currentTimeMillis()));
+			}
+		} catch (SQLException e) {
+			closeQuietly(conn); // Broken, a new one is opened in its place
+		} finally {
+			permits.release();
+		}
+	}
+
+	@Override
+	public long getWaitCount() {
+		return waitCount.get();
+	}
+
+	@Override
+	public long getWaitNanos() {
+		return waitNanos.get();
+	}
+
+	@Override
+	public void close() {
+		closed = true;
+
+		IdleConnection idleConn;
+		while ((idleConn = pollIdle()) != null) {
+			closeQuietly(idleConn.conn);
+		}
+	}
+
+	private IdleConnection pollIdle() {
+		synchronized (idle) {
+			return idle.poll();
+		}
+	}
+
+	/**
+	 * Checks if the idle connection can still be used.
+	 *
+	 * @param idleConn The idle connection.
+	 * @return true if the connection can be used, false if it is broken.
+	 */
+	private static boolean isHealthy(IdleConnection idleConn) {
+		if (System.currentTimeMillis() - idleConn.idleSince < IDLE_VALIDATION_MILLIS) {
+			return true;
+		}
+
+		try {
+			return idleConn.conn.isValid(VALIDATION_TIMEOUT_SECONDS);
+		} catch (SQLException e) {
+			return false;
+		}
+	}
+
+	private static void closeQuietly(Connection conn) {
+		try {
+			conn.close();
+		} catch (SQLException e) {
+			// Already broken
+		}
+	}
+
+	/**
+	 * A connection waiting to be handed out.
+	 */
+	private static class IdleConnection {
+
+		private final Connection conn;
+		private final long idleSince;
+
+		private IdleConnection(Connection conn, long idleSince) {
+			this.conn = conn;
+			this.idleSince = idleSince;
+		}
+
+	}
+
+}
@@ -0,0 +1,229 @@
+package com.simplexservers.minecraft.bukkitutils.players;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+
+/**
+ * The database specific SQL of a SQLNameCacheBackend.
+ * The players are stored in a table with a 16 byte binary UUID key and an index on the username.
+ */
+public abstract class SQLDialect {
+
+	/**
+	 * The dialect for SQLite, for single servers.
+	 */
+	public static final SQLDialect SQLITE = new SQLiteDialect();
+	/**
+	 * The dialect for MySQL and MariaDB, for databases shared between servers.
+	 */
+	public static final SQLDialect MYSQL = new MySQLDialect();
+
+	/**
+	 * The table the players are stored in.
+	 */
+	static final String TABLE = "player_uuid_cache_v2";
+	/**
+	 * The index on the usernames of the table.
+	 */
+	static final String USERNAME_INDEX = "player_uuid_cache_v2_username";
+
+	SQLDialect() {
+	}
+
+	/**
+	 * Gets if the database may be shared between servers.
+	 *
+	 * @return true if other servers may use the database.
+	 */
+	abstract boolean isShared();
+
+	/**
+	 * Creates the table if it doesn't exist and upgrades older schemas.
+	 *
+	 * @param conn The connection to the database.
+	 * @throws SQLException If the schema could not be created.
+	 */
+	abstract void createSchema(Connection conn) throws SQLException;
+
+	/**
+	 * Gets the statement inserting a player or replacing their username, taking the UUID and the username.
+	 *
+	 * @return The upsert SQL.
+	 */
+	abstract String getUpsertSQL();
+
+	/**
+	 * Gets the statement deleting the players with a username, case-insensitively, except one UUID.
+	 * Takes the username and the UUID to keep.
+	 *
+	 * @return The delete SQL.
+	 */
+	abstract String getInvalidateUsernameSQL();
+
+	/**
+	 * Gets the statement selecting the UUIDs and stored usernames of the players stored with a username,
+	 * case-insensitively, taking the username.
+	 *
+	 * @return The select SQL.
+	 */
+	abstract String getSelectPlayerSQL();
+
+	/**
+	 * The dialect for SQLite.
+	 * The schema version is stored in the user_version pragma. Version 1 stored UUIDs as hex strings
+	 * in player_uuid_cache, version 2 stores them as 16 byte blobs.
+	 */
+	private static class SQLiteDialect extends SQLDialect {
+
+		private static final int SCHEMA_VERSION = 2;
+
+		@Override
+		boolean isShared() {
+			return false;
+		}
+
+		@Override
+		void createSchema(Connection conn) throws SQLException {
+			try (Statement stmt = conn.createStatement()) {
+				stmt.execute("CREATE TABLE IF NOT EXISTS " + TABLE + " " +
+						"(uuid     BLOB(16)         PRIMARY KEY  NOT NULL," +
+						" username VARCHAR(16)                   NOT NULL)");
+				stmt.execute("CREATE INDEX IF NOT EXISTS " + USERNAME_INDEX + " ON " + TABLE + " (username COLLATE NOCASE)");
+
+				int version;
+				try (ResultSet res = stmt.executeQuery("PRAGMA user_version")) {
+					version = res.next() ? res.getInt(1) : 0;
+				}
+				if (version < SCHEMA_VERSION) {
+					migrateLegacyTable(conn);
+					stmt.execute("PRAGMA user_version = " + SCHEMA_VERSION);
+				}
+			}
+		}
+
+		/**
+		 * Moves the players in the legacy hex string table into the binary table, if the legacy table exists.
+		 *
+		 * @param conn The connection to the database.
+		 * @throws SQLException If an error occurred migrating the table.
+		 */
+		private void migrateLegacyTable(Connection conn) throws SQLException {
+			try (ResultSet tables = conn.getMetaData().getTables(null, null, "player_uuid_cache", null)) {
+				if (!tables.next()) {
+					return;
+				}
+			}
+
+			boolean autoCommit = conn.getAutoCommit();
+			conn.setAutoCommit(false);
+			try (Statement selectStmt = conn.createStatement();
+			     PreparedStatement insertStmt = conn.prepareStatement(getUpsertSQL())) {
+				try (ResultSet res = selectStmt.executeQuery("SELECT uuid, username FROM player_uuid_cache")) {
+					while (res.next()) {
+						UUID uuid;
+						try {
+							uuid = UUIDCodec.fromHex(res.getString("uuid"));
+						} catch (IllegalArgumentException e) {
+							continue; // Skip corrupt rows
+						}
+
+						insertStmt.setBytes(1, UUIDCodec.toBytes(uuid));
+						insertStmt.setString(2, res.getString("username"));
+						insertStmt.addBatch();
+					}
+				}
+				insertStmt.executeBatch();
+
+				selectStmt.execute("DROP TABLE player_uuid_cache");
+				conn.commit();
+			} catch (SQLException e) {
+				conn.rollback();
+				throw e;
+			} finally {
+				conn.setAutoCommit(autoCommit);
+			}
+		}
+
+		@Override
+		String getUpsertSQL() {
+			return "INSERT OR REPLACE INTO " + TABLE + " (uuid, username) VALUES(?, ?)";
+		}
+
+		@Override
+		String getInvalidateUsernameSQL() {
+			return "DELETE FROM " + TABLE + " WHERE username = ? COLLATE NOCASE AND uuid != ?";
+		}
+
+		@Override
+		String getSelectPlayerSQL() {
+			// NOCASE matches the index's collation, a BINARY comparison couldn't use it
+			return "SELECT uuid, username FROM " + TABLE + " WHERE username = ? COLLATE NOCASE";
+		}
+
+	}
+
+	/**
+	 * The dialect for MySQL and MariaDB, whose default collations compare usernames case-insensitively.
+	 */
+	private static class MySQLDialect extends SQLDialect {
+
+		@Override
+		boolean isShared() {
+			return true;
+		}
+
+		@Override
+		void createSchema(Connection conn) throws SQLException {
+			try (Statement stmt = conn.createStatement()) {
+				stmt.execute("CREATE TABLE IF NOT EXISTS " + TABLE + " " +
+						"(uuid     BINARY(16)       NOT NULL  PRIMARY KEY," +
+						" username VARCHAR(16)      NOT NULL)");
+				if (!hasUsernameIndex(conn.getMetaData())) {
+					// MySQL has no CREATE INDEX IF NOT EXISTS
+					stmt.execute("CREATE INDEX " + USERNAME_INDEX + " ON " + TABLE + " (username)");
+				}
+			}
+		}
+
+		/**
+		 * Checks if the username index exists.
+		 *
+		 * @param metaData The metadata of the database.
+		 * @return true if the index exists.
+		 * @throws SQLException If the metadata could not be queried.
+		 */
+		private static boolean hasUsernameIndex(DatabaseMetaData metaData) throws SQLException {
+			String table = metaData.storesUpperCaseIdentifiers() ? TABLE.toUpperCase() : TABLE;
+			try (ResultSet indexes = metaData.getIndexInfo(null, null, table, false, false)) {
+				while (indexes.next()) {
+					if (USERNAME_INDEX.equalsIgnoreCase(indexes.getString("INDEX_NAME"))) {
+						return true;
+					}
+				}
+			}
+			return false;
+		}
+
+		@Override
+		String getUpsertSQL() {
+			return "INSERT INTO " + TABLE + " (uuid, username) VALUES(?, ?) ON DUPLICATE KEY UPDATE username = VALUES(username)";
+		}
+
+		@Override
+		String getInvalidateUsernameSQL() {
+			return "DELETE FROM " + TABLE + " WHERE username = ? AND uuid != ?";
+		}
+
+		@Override
+		String getSelectPlayerSQL() {
+			return "SELECT uuid, username FROM " + TABLE + " WHERE username = ?";
+		}
+
+	}
+
+}
@@ -0,0 +1,276 @@
+package com.simplexservers.minecraft.bukkitutils.players;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.AbstractMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Stores the name cache in a SQL database through JDBC.
+ * Connections are taken from a ConnectionSource for each operation, so a pooled source
+ * lets operations from several threads run at once.
+ */
+public class SQLNameCacheBackend implements NameCacheBackend {
+
+	/**
+	 * The number of players written per batch when importing.
+	 */
+	private static final int IMPORT_BATCH_SIZE = 10000;
+
+	/**
+	 * The SQL of the database.
+	 */
+	private final SQLDialect dialect;
+	/**
+	 * The source of connections to the database.
+	 */
+	private final ConnectionSource connections;
+
+	/**
+	 * Creates a SQLNameCacheBackend.
+	 *
+	 * @param dialect The SQL of the database.
+	 * @param connections The source of connections to the database.
+	 */
+	public SQLNameCacheBackend(SQLDialect dialect, ConnectionSource connections) {
+		this.dialect = dialect;
+		this.connections = connections;
+	}
+
+	@Override
+	public boolean isShared() {
+		return dialect.isShared();
+	}
+
+	@Override
+	public void initialize() throws SQLException {
+		Connection conn = connections.getConnection();
+		try {
+			dialect.createSchema(conn);
+		} finally {
+			connections.releaseConnection(conn);
+		}
+	}
+
+	@Override
+	public void put(UUID uuid, String username) throws SQLException {
+		Connection conn = connections.getConnection();
+		try (PreparedStatement invalidateStmt = conn.prepareStatement(dialect.getInvalidateUsernameSQL());
+		     PreparedStatement upsertStmt = conn.prepareStatement(dialect.getUpsertSQL())) {
+			byte[] uuidBytes = UUIDCodec.toBytes(uuid);
+			invalidateStmt.setString(1, username);
+			invalidateStmt.setBytes(2, uuidBytes);
+			invalidateStmt.executeUpdate();
+
+			upsertStmt.setBytes(1, uuidBytes);
+			upsertStmt.setString(2, username);
+			upsertStmt.executeUpdate();
+		} finally {
+			connections.releaseConnection(conn);
+		}
+	}
+
+	@Override
+	public void putAll(Map<UUID, String> players) throws SQLException {
+		if (players.isEmpty()) {
+			return;
+		}
+
+		Connection conn = connections.getConnection();
+		try {
+			conn.setAutoCommit(false);
+			try (PreparedStatement invalidateStmt = conn.prepareStatement(dialect.getInvalidateUsernameSQL());
+			     PreparedStatement upsertStmt = conn.prepareStatement(dialect.getUpsertSQL())) {
+				for (Map.Entry<UUID, String> player : players.entrySet()) {
+					byte[] uuidBytes = UUIDCodec.toBytes(player.getKey());
+					invalidateStmt.setString(1, player.getValue());
+					invalidateStmt.setBytes(2, uuidBytes);
+					invalidateStmt.addBatch();
+
+					upsertStmt.setBytes(1, uuidBytes);
+					upsertStmt.setString(2, player.getValue());
+					upsertStmt.addBatch();
+				}
+				invalidateStmt.executeBatch();
+				upsertStmt.executeBatch();
+				conn.commit();
+			} catch (SQLException | RuntimeException e) {
+				conn.rollback();
+				throw e;
+			} finally {
+				conn.setAutoCommit(true);
+			}
+		} finally {
+			connections.releaseConnection(conn);
+		}
+	}
+
+	@Override
+	public long importAll(EntrySource source) throws SQLException, IOException {
+		Connection conn = connections.getConnection();
+		try {
+			conn.setAutoCommit(false);
+			try (PreparedStatement stmt = conn.prepareStatement(dialect.getUpsertSQL())) {
+				long imported = 0;
+				while (source.next()) {
+					stmt.setBytes(1, UUIDCodec.toBytes(source.getUUID()));
+					stmt.setString(2, source.getUsername());
+					stmt.addBatch();
+					if (++imported % IMPORT_BATCH_SIZE == 0) {
+						stmt.executeBatch();
+					}
+				}
+				stmt.executeBatch();
+				conn.commit();
+				return imported;
+			} catch (SQLException | IOException | RuntimeException e) {
+				conn.rollback();
+				throw e;
+			} finally {
+				conn.setAutoCommit(true);
+			}
+		} finally {
+			connections.releaseConnection(conn);
+		}
+	}
+
+	@Override
+	public UUID getUUID(String username) throws SQLException {
+		Map.Entry<UUID, String> player = getPlayer(username);
+		return player != null ? player.getKey() : null;
+	}
+
+	@Override
+	public Map.Entry<UUID, String> getPlayer(String username) throws SQLException {
+		Connection conn = connections.getConnection();
+		try (PreparedStatement stmt = conn.prepareStatement(dialect.getSelectPlayerSQL())) {
+			stmt.setString(1, username);
+			try (ResultSet res = stmt.executeQuery()) {
+				if (!res.next()) {
+					return null;
+				}
+
+				byte[] uuidBytes = res.getBytes("uuid");
+				String storedName = res.getString("username");
+				if (res.next()) {
+					return null; // We have multiple entries
+				}
+				return new AbstractMap.SimpleImmutableEntry<>(UUIDCodec.fromBytes(uuidBytes), storedName);
+			}
+		} finally {
+			connections.releaseConnection(conn);
+		}
+	}
+
+	@Override
+	public String getUsername(UUID uuid) throws SQLException {
+		Connection conn = connections.getConnection();
+		try (PreparedStatement stmt = conn.prepareStatement("SELECT username FROM " + SQLDialect.TABLE + " WHERE uuid = ?")) {
+			stmt.setBytes(1, UUIDCodec.toBytes(uuid));
+			try (ResultSet res = stmt.executeQuery()) {
+				// There will never be multiple entries since uuid is the primary key
+				return res.next() ? res.getString("username") : null;
+			}
+		} finally {
+			connections.releaseConnection(conn);
+		}
+	}
+
+	@Override
+	public long count() throws SQLException {
+		Connection conn = connections.getConnection();
+		try (Statement stmt = conn.createStatement();
+		     ResultSet res = stmt.executeQuery("SELECT COUNT(*) FROM " + SQLDialect.TABLE)) {
+			return res.next() ? res.getLong(1) : 0;
+		} finally {
+			connections.releaseConnection(conn);
+		}
+	}
+
+	@Override
+	public void forEach(EntryConsumer consumer) throws SQLException, IOException {
+		Connection conn = connections.getConnection();
+		try (Statement stmt = conn.createStatement();
+		     ResultSet res = stmt.executeQuery("SELECT uuid, username FROM " + SQLDialect.TABLE + " ORDER BY uuid")) {
+			while (res.next()) {
+				consumer.accept(UUIDCodec.fromBytes(res.getBytes("uuid")), res.getString("username"));
+			}
+		} finally {
+			connections.releaseConnection(conn);
+		}
+	}
+
+	@Override
+	public void export(ExportConsumer consumer) throws SQLException, IOException {
+		Connection conn = connections.getConnection();
+		try {
+			// Count and read the players in one transaction so they come from the same snapshot
+			int isolation = conn.getTransactionIsolation();
+			boolean raiseIsolation = isolation < Connection.TRANSACTION_REPEATABLE_READ
+					&& conn.getMetaData().supportsTransactionIsolationLevel(Connection.TRANSACTION_REPEATABLE_READ);
+			if (raiseIsolation) {
+				conn.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+			}
+			conn.setAutoCommit(false);
+			try (Statement stmt = conn.createStatement()) {
+				try (ResultSet res = stmt.executeQuery("SELECT COUNT(*) FROM " + SQLDialect.TABLE)) {
+					consumer.begin(res.next() ? res.getLong(1) : 0);
+				}
+				try (ResultSet res = stmt.executeQuery("SELECT uuid, username FROM " + SQLDialect.TABLE + " ORDER BY uuid")) {
+					while (res.next()) {
+						consumer.accept(UUIDCodec.fromBytes(res.getBytes("uuid")), res.getString("username"));
+					}
+				}
+				conn.commit();
+			} catch (SQLException | IOException | RuntimeException e) {
+				conn.rollback();
+				throw e;
+			} finally {
+				conn.setAutoCommit(true);
+				if (raiseIsolation) {
+					conn.setTransactionIsolation(isolation);
+				}
+			}
+		} finally {
+			connections.releaseConnection(conn);
+		}
+	}
+
+	@Override
+	public void retainOnly(Set<UUID> uuids) throws SQLException {
+		Connection conn = connections.getConnection();
+		try (Statement stmt = conn.createStatement()) {
+			if (uuids.isEmpty()) {
+				stmt.execute("DELETE FROM " + SQLDialect.TABLE);
+				return;
+			}
+
+			try (PreparedStatement deleteStmt = conn.prepareStatement("DELETE FROM " + SQLDialect.TABLE + " WHERE uuid = ?")) {
+				try (ResultSet res = stmt.executeQuery("SELECT uuid FROM " + SQLDialect.TABLE)) {
+					while (res.next()) {
+						byte[] uuidBytes = res.getBytes("uuid");
+						if (!uuids.contains(UUIDCodec.fromBytes(uuidBytes))) {
+							deleteStmt.setBytes(1, uuidBytes);
+							deleteStmt.addBatch();
+						}
+					}
+				}
+				deleteStmt.executeBatch();
+			}
+		} finally {
+			connections.releaseConnection(conn);
+		}
+	}
+
+	@Override
+	public void close() {
+		connections.close();
+	}
+
+}
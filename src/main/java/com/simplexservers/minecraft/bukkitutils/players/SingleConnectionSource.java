@@ -0,0 +1,88 @@
+package com.simplexservers.minecraft.bukkitutils.players;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Shares one connection, handing it to one user at a time.
+ */
+class SingleConnectionSource implements ConnectionSource {
+
+	/**
+	 * Gets the shared connection.
+	 */
+	@FunctionalInterface
+	interface ConnectionGetter {
+		Connection get() throws SQLException;
+	}
+
+	/**
+	 * Gets the shared connection.
+	 */
+	private final ConnectionGetter getter;
+	/**
+	 * Closes the shared connection.
+	 */
+	private final Runnable closer;
+	/**
+	 * Held while the connection is in use.
+	 */
+	private final ReentrantLock lock = new ReentrantLock();
+	/**
+	 * The number of times a user had to wait for the connection.
+	 */
+	private final AtomicLong waitCount = new AtomicLong();
+	/**
+	 * The total time, in nanoseconds, users waited for the connection.
+	 */
+	private final AtomicLong waitNanos = new AtomicLong();
+
+	SingleConnectionSource(ConnectionGetter getter, Runnable closer) {
+		this.getter = getter;
+		this.closer = closer;
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		if (!lock.tryLock()) {
+			long start = System.nanoTime();
+			lock.lock();
+			waitNanos.addAndGet(System.nanoTime() - start);
+			waitCount.incrementAndGet();
+		}
+		try {
+			return getter.get();
+		} catch (SQLException | RuntimeException e) {
+			lock.unlock();
+			throw e;
+		}
+	}
+
+	@Override
+	public void releaseConnection(Connection conn) {
+		lock.unlock();
+	}
+
+	@Override
+	public long getWaitCount() {
+		return waitCount.get();
+	}
+
+	@Override
+	public long getWaitNanos() {
+		return waitNanos.get();
+	}
+
+	@Override
+	public void close() {
+		lock.lock();
+		try {
+			closer.run();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+}
@@ -0,0 +1,82 @@
+package com.simplexservers.minecraft.bukkitutils.players;
+
+import java.util.UUID;
+
+/**
+ * Encodes UUIDs as 16 big-endian bytes straight from their most and least significant bits.
+ */
+class UUIDCodec {
+
+	/**
+	 * The number of bytes in an encoded UUID.
+	 */
+	static final int UUID_BYTES = 16;
+
+	/**
+	 * Encodes the UUID into 16 bytes.
+	 *
+	 * @param uuid The UUID to encode.
+	 * @return The encoded UUID.
+	 */
+	static byte[] toBytes(UUID uuid) {
+		byte[] bytes = new byte[UUID_BYTES];
+		writeLong(bytes, 0, uuid.getMostSignificantBits());
+		writeLong(bytes, 8, uuid.getLeastSignificantBits());
+		return bytes;
+	}
+
+	/**
+	 * Decodes the UUID from 16 bytes.
+	 *
+	 * @param bytes The encoded UUID.
+	 * @return The decoded UUID.
+	 */
+	static UUID fromBytes(byte[] bytes) {
+		if (bytes == null || bytes.length != UUID_BYTES) {
+			throw new IllegalArgumentException("Invalid UUID bytes. Must be " + UUID_BYTES + " bytes long");
+		}
+
+		return new UUID(readLong(bytes, 0), readLong(bytes, 8));
+	}
+
+	/**
+	 * Decodes a UUID from 32 hex digits without hyphens, the legacy storage format.
+	 *
+	 * @param hex The hex UUID.
+	 * @return The decoded UUID.
+	 */
+	static UUID fromHex(String hex) {
+		if (hex == null || hex.length() != UUID_BYTES * 2) {
+			throw new IllegalArgumentException("Invalid UUID '" + hex + "'. Must be 32 hex digits");
+		}
+
+		long mostSigBits = 0;
+		long leastSigBits = 0;
+		for (int i = 0; i < UUID_BYTES; i++) {
+			int digit = Character.digit(hex.charAt(i), 16);
+			int lowDigit = Character.digit(hex.charAt(i + UUID_BYTES), 16);
+			if (digit < 0 || lowDigit < 0) {
+				throw new IllegalArgumentException("Invalid UUID '" + hex + "'. Must be 32 hex digits");
+			}
+			mostSigBits = (mostSigBits << 4) | digit;
+			leastSigBits = (leastSigBits << 4) | lowDigit;
+		}
+		return new UUID(mostSigBits, leastSigBits);
+	}
+
+	private static void writeLong(byte[] bytes, int offset, long value) {
+		for (int i = 7; i >= 0; i--) {
+			bytes[offset + i] = (byte) value;
+			value >>>= 8;
+		}
+	}
+
+	private static long readLong(byte[] bytes, int offset) {
+		long value = 0;
+		for (int i = 0; i < 8; i++) {
+			value = (value << 8) | (bytes[offset + i] & 0xFF);
+		}
+		return value;
+	}
+
+}
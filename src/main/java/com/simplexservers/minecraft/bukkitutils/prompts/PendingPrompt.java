@@ -0,0 +1,45 @@
+package com.simplexservers.minecraft.bukkitutils.prompts;
+
+import com.simplexservers.minecraft.promptutils.AnswerPrompt;
+
+import java.util.UUID;
+
+/**
+ * A prompt waiting for a player's answer.
+ */
+class PendingPrompt {
+
+	/**
+	 * The UUID of the player that was prompted.
+	 */
+	final UUID playerID;
+	/**
+	 * The prompt waiting for the answer.
+	 */
+	final AnswerPrompt prompt;
+	/**
+	 * The callback for the prompt ending unanswered, or null if there is none.
+	 */
+	final PromptCallback callback;
+	/**
+	 * The thread the answer is delivered on.
+	 */
+	final PromptDispatchMode dispatchMode;
+	/**
+	 * The number of timeout wheel ticks before the prompt times out, or 0 if it never does.
+	 */
+	final long timeoutTicks;
+	/**
+	 * The timeout wheel tick the prompt times out on, set when it is added to the wheel.
+	 */
+	long deadline = 0;
+
+	PendingPrompt(UUID playerID, AnswerPrompt prompt, PromptCallback callback, PromptDispatchMode dispatchMode, long timeoutTicks) {
+		this.playerID = playerID;
+		this.prompt = prompt;
+		this.callback = callback;
+		this.dispatchMode = dispatchMode;
+		this.timeoutTicks = timeoutTicks;
+	}
+
+}
@@ -0,0 +1,33 @@
+package com.simplexservers.minecraft.bukkitutils.prompts;
+
+import com.simplexservers.minecraft.promptutils.AnswerPrompt;
+import org.bukkit.entity.Player;
+
+/**
+ * Receives the end of a prompt that wasn't answered.
+ * The callbacks are always run on the main thread.
+ *
+ * @see PromptListener#registerParticipant(com.simplexservers.minecraft.commandutils.CommandInvoker, AnswerPrompt, com.simplexservers.minecraft.promptutils.Time, PromptCallback)
+ */
+public interface PromptCallback {
+
+	/**
+	 * Called when the player didn't answer the prompt before it timed out.
+	 *
+	 * @param player The player that was prompted.
+	 * @param prompt The prompt that timed out.
+	 */
+	default void onTimeout(Player player, AnswerPrompt prompt) {
+	}
+
+	/**
+	 * Called when the player canceled the prompt, left the server,
+	 * or was registered for another prompt before answering this one.
+	 *
+	 * @param player The player that was prompted.
+	 * @param prompt The prompt that was canceled.
+	 */
+	default void onCancel(Player player, AnswerPrompt prompt) {
+	}
+
+}
@@ -0,0 +1,24 @@
+package com.simplexservers.minecraft.bukkitutils.prompts;
+
+/**
+ * The thread a prompt's answer is delivered on.
+ */
+public enum PromptDispatchMode {
+
+	/**
+	 * The answer is delivered on the async chat thread it was chatted on.
+	 * Only for prompts that are quick and don't use the Bukkit API.
+	 */
+	ASYNC,
+	/**
+	 * The answer is delivered on the main thread at the next tick,
+	 * together with the other answers chatted since the last tick.
+	 */
+	MAIN_THREAD,
+	/**
+	 * The answer is delivered on one of the listener's worker threads,
+	 * for prompts that do blocking work such as database queries.
+	 */
+	WORKER_POOL
+
+}
@@ -1,33 +1,191 @@
 package com.simplexservers.minecraft.bukkitutils.prompts;
 
-import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
 
+import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.AsyncPlayerChatEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
 
 import com.simplexservers.minecraft.commandutils.CommandInvoker;
 import com.simplexservers.minecraft.promptutils.AnswerPrompt;
 import com.simplexservers.minecraft.promptutils.ChatListener;
+import com.simplexservers.minecraft.promptutils.Time;
 
 /**
  * The listener to handle players responding to AnswerPrompts.
  *
+ * Prompts are registered and answered from any thread. Prompts with a timeout
+ * are timed out by a single timer that only runs while such prompts are pending.
+ * Answers are delivered on the thread chosen by each prompt's PromptDispatchMode,
+ * so slow prompts never hold up the chat of other players.
+ *
  * @author Zach Abney
  */
 public class PromptListener implements Listener, ChatListener {
 
 	/**
-	 * The list of players answering prompts.
+	 * The JavaPlugin to register tasks under, or null if timeouts and callbacks aren't supported.
+	 */
+	private final JavaPlugin plugin;
+	/**
+	 * The timeout of prompts registered without one, or null if they never time out.
+	 */
+	private final Time defaultTimeout;
+	/**
+	 * The dispatch mode of prompts registered without one.
+	 */
+	private final PromptDispatchMode defaultDispatchMode;
+	/**
+	 * The prompts of the players answering them.
 	 */
-	private HashMap<Player, AnswerPrompt> conversing = new HashMap<>();
+	private final Map<UUID, PendingPrompt> conversing = new ConcurrentHashMap<>();
+	/**
+	 * The timeouts of the pending prompts.
+	 */
+	private final PromptTimeoutWheel timeoutWheel = new PromptTimeoutWheel();
+	/**
+	 * The repeating task to time out prompts, only running while prompts with a timeout are pending.
+	 */
+	private BukkitTask timeoutTask = null;
+	/**
+	 * The answers waiting to be delivered on the main thread.
+	 */
+	private final Queue<Runnable> mainThreadAnswers = new ConcurrentLinkedQueue<>();
+	/**
+	 * If a task is scheduled to deliver the main thread answers.
+	 */
+	private final AtomicBoolean mainThreadDeliveryScheduled = new AtomicBoolean(false);
+	/**
+	 * The worker threads for WORKER_POOL prompts, created on first use.
+	 */
+	private ExecutorService workerPool = null;
+
+	/**
+	 * Creates a PromptListener whose prompts never time out.
+	 */
+	public PromptListener() {
+		this(null, null);
+	}
+
+	/**
+	 * Creates a PromptListener whose answers are delivered on the chat thread.
+	 *
+	 * @param plugin The JavaPlugin to register tasks under.
+	 * @param defaultTimeout The timeout of prompts registered without one, or null if they never time out.
+	 */
+	public PromptListener(JavaPlugin plugin, Time defaultTimeout) {
+		this(plugin, defaultTimeout, PromptDispatchMode.ASYNC);
+	}
+
+	/**
+	 * Creates a PromptListener.
+	 *
+	 * @param plugin The JavaPlugin to register tasks under.
+	 * @param defaultTimeout The timeout of prompts registered without one, or null if they never time out.
+	 * @param defaultDispatchMode The dispatch mode of prompts registered without one.
+	 */
+	public PromptListener(JavaPlugin plugin, Time defaultTimeout, PromptDispatchMode defaultDispatchMode) {
+		this.plugin = plugin;
+		this.defaultTimeout = defaultTimeout;
+		this.defaultDispatchMode = defaultDispatchMode;
+	}
 
 	@Override
 	public void registerParticipant(CommandInvoker participant, AnswerPrompt prompt) {
-		conversing.put((Player) participant.getNativeInvoker(), prompt);
+		registerParticipant(participant, prompt, defaultTimeout, null, defaultDispatchMode);
+	}
+
+	/**
+	 * Registers the participant as answering the prompt, replacing the prompt they are answering.
+	 *
+	 * @param participant The player answering the prompt.
+	 * @param prompt The prompt to answer.
+	 * @param dispatchMode The thread the answer is delivered on.
+	 */
+	public void registerParticipant(CommandInvoker participant, AnswerPrompt prompt, PromptDispatchMode dispatchMode) {
+		registerParticipant(participant, prompt, defaultTimeout, null, dispatchMode);
+	}
+
+	/**
+	 * Registers the participant as answering the prompt, replacing the prompt they are answering.
+	 *
+	 * @param participant The player answering the prompt.
+	 * @param prompt The prompt to answer.
+	 * @param timeout How long the player has to answer, or null to never time out.
+	 * @param callback The callback for the prompt ending unanswered, or null for none.
+	 */
+	public void registerParticipant(CommandInvoker participant, AnswerPrompt prompt, Time timeout, PromptCallback callback) {
+		registerParticipant(participant, prompt, timeout, callback, defaultDispatchMode);
+	}
+
+	/**
+	 * Registers the participant as answering the prompt, replacing the prompt they are answering.
+	 *
+	 * @param participant The player answering the prompt.
+	 * @param prompt The prompt to answer.
+	 * @param timeout How long the player has to answer, or null to never time out.
+	 * @param callback The callback for the prompt ending unanswered, or null for none.
+	 * @param dispatchMode The thread the answer is delivered on.
+	 */
+	public void registerParticipant(CommandInvoker participant, AnswerPrompt prompt, Time timeout, PromptCallback callback,
+	                                PromptDispatchMode dispatchMode) {
+		if ((timeout != null || callback != null || dispatchMode == PromptDispatchMode.MAIN_THREAD) && plugin == null) {
+			throw new IllegalStateException("Prompt timeouts, callbacks and main thread dispatch require the listener to have a JavaPlugin");
+		}
+
+		long timeoutTicks = 0;
+		if (timeout != null) {
+			long seconds = timeout.getSeconds();
+			if (seconds <= 0) {
+				throw new IllegalArgumentException("Invalid timeout '" + seconds + "s'. Must be positive");
+			}
+			timeoutTicks = (seconds * 20L + PromptTimeoutWheel.TICK_INTERVAL - 1) / PromptTimeoutWheel.TICK_INTERVAL;
+		}
+
+		Player player = (Player) participant.getNativeInvoker();
+		PendingPrompt pending = new PendingPrompt(player.getUniqueId(), prompt, callback, dispatchMode, timeoutTicks);
+		PendingPrompt replaced = conversing.put(pending.playerID, pending);
+		if (replaced != null && replaced.callback != null) {
+			// The replaced prompt will never be answered
+			if (Bukkit.isPrimaryThread()) {
+				replaced.callback.onCancel(player, replaced.prompt);
+			} else {
+				Bukkit.getScheduler().runTask(plugin, () -> replaced.callback.onCancel(player, replaced.prompt));
+			}
+		}
+
+		if (timeoutTicks > 0) {
+			synchronized (timeoutWheel) {
+				timeoutWheel.schedule(pending);
+				startTimeoutTask();
+			}
+		}
+	}
+
+	/**
+	 * Checks if the player is answering a prompt.
+	 *
+	 * @param player The player to check.
+	 * @return true if the player has a pending prompt.
+	 */
+	public boolean isConversing(Player player) {
+		return conversing.containsKey(player.getUniqueId());
 	}
 
 	/**
@@ -38,8 +196,9 @@ public class PromptListener implements Listener, ChatListener {
 	 */
 	@EventHandler
 	public void onPlayerChat(AsyncPlayerChatEvent event) {
-		AnswerPrompt prompt;
-		if ((prompt = conversing.remove(event.getPlayer())) != null) {
+		PendingPrompt pending;
+		if ((pending = conversing.remove(event.getPlayer().getUniqueId())) != null) {
+			AnswerPrompt prompt = pending.prompt;
 			if (prompt.cancelInputChat()) {
 				event.setCancelled(true);
 			}
@@ -47,8 +206,12 @@ public class PromptListener implements Listener, ChatListener {
 			String message = event.getMessage();
 			if (message.equalsIgnoreCase("cancel")) {
 				event.getPlayer().sendMessage(ChatColor.RED + "Canceled.");
+				if (pending.callback != null) {
+					Player player = event.getPlayer();
+					Bukkit.getScheduler().runTask(plugin, () -> pending.callback.onCancel(player, prompt));
+				}
 			} else {
-				prompt.onInput(message);
+				dispatchAnswer(pending, message);
 			}
 		}
 	}
@@ -61,7 +224,126 @@ public class PromptListener implements Listener, ChatListener {
 	 */
 	@EventHandler
 	public void onPlayerQuit(PlayerQuitEvent event) {
-		conversing.remove(event.getPlayer());
+		PendingPrompt pending = conversing.remove(event.getPlayer().getUniqueId());
+		if (pending != null && pending.callback != null) {
+			pending.callback.onCancel(event.getPlayer(), pending.prompt);
+		}
+	}
+
+	/**
+	 * Stops the worker threads once the answers they are processing are delivered.
+	 * Should be called when the plugin is disabled.
+	 */
+	public synchronized void shutdown() {
+		if (workerPool != null) {
+			workerPool.shutdown();
+			workerPool = null;
+		}
+	}
+
+	/**
+	 * Delivers the answer to the prompt on the thread of its dispatch mode.
+	 *
+	 * @param pending The prompt that was answered.
+	 * @param message The answer.
+	 */
+	private void dispatchAnswer(PendingPrompt pending, String message) {
+		Runnable delivery = () -> {
+			try {
+				pending.prompt.onInput(message);
+			} catch (RuntimeException e) {
+				Bukkit.getLogger().log(Level.WARNING, "An error occurred handling a prompt answer.", e);
+			}
+		};
+
+		switch (pending.dispatchMode) {
+			case MAIN_THREAD:
+				mainThreadAnswers.add(delivery);
+				if (mainThreadDeliveryScheduled.compareAndSet(false, true)) {
+					Bukkit.getScheduler().runTask(plugin, this::deliverMainThreadAnswers);
+				}
+				break;
+			case WORKER_POOL:
+				getWorkerPool().execute(delivery);
+				break;
+			default:
+				pending.prompt.onInput(message);
+		}
+	}
+
+	/**
+	 * Delivers all the answers queued for the main thread.
+	 */
+	private void deliverMainThreadAnswers() {
+		mainThreadDeliveryScheduled.set(false);
+
+		Runnable delivery;
+		while ((delivery = mainThreadAnswers.poll()) != null) {
+			delivery.run();
+		}
+	}
+
+	/**
+	 * Gets the worker threads, creating them if they don't exist.
+	 *
+	 * @return The worker thread pool.
+	 */
+	private synchronized ExecutorService getWorkerPool() {
+		if (workerPool == null) {
+			AtomicInteger threadCount = new AtomicInteger();
+			int threads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+			workerPool = Executors.newFixedThreadPool(threads, runnable -> {
+				Thread thread = new Thread(runnable, "PromptWorker-" + threadCount.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		return workerPool;
+	}
+
+	/**
+	 * Starts the timeout task if it isn't running.
+	 * Must be called while holding the timeout wheel's lock.
+	 */
+	private void startTimeoutTask() {
+		if (timeoutTask != null) {
+			return;
+		}
+
+		timeoutTask = new BukkitRunnable() {
+			@Override
+			public void run() {
+				timeoutWheel.tick(pending -> conversing.get(pending.playerID) == pending, PromptListener.this::timeOut);
+
+				synchronized (timeoutWheel) {
+					if (timeoutWheel.isEmpty()) {
+						cancel();
+						timeoutTask = null;
+					}
+				}
+			}
+		}.runTaskTimer(plugin, PromptTimeoutWheel.TICK_INTERVAL, PromptTimeoutWheel.TICK_INTERVAL);
+	}
+
+	/**
+	 * Times out the prompt if the player hasn't answered it in the meantime.
+	 *
+	 * @param pending The prompt that timed out.
+	 */
+	private void timeOut(PendingPrompt pending) {
+		if (!conversing.remove(pending.playerID, pending)) {
+			return; // Answered while timing out
+		}
+
+		Player player = Bukkit.getPlayer(pending.playerID);
+		if (player == null) {
+			return;
+		}
+
+		player.sendMessage(ChatColor.RED + "Timed out.");
+		if (pending.callback != null) {
+			pending.callback.onTimeout(player, pending.prompt);
+		}
 	}
 
 }
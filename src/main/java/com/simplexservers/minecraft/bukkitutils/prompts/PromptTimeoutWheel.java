@@ -0,0 +1,102 @@
+package com.simplexservers.minecraft.bukkitutils.prompts;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * A hashed wheel of prompt timeouts.
+ *
+ * Prompts are placed in the bucket of the tick they time out on, so each tick
+ * only looks at one bucket no matter how many prompts are pending.
+ * Prompts that end before timing out are dropped the next time their bucket comes around,
+ * so the wheel never holds a prompt for longer than a full turn past its end.
+ * Prompts may be scheduled from any thread, the wheel must only be ticked from one.
+ */
+class PromptTimeoutWheel {
+
+	/**
+	 * The number of server ticks in a wheel tick.
+	 */
+	static final long TICK_INTERVAL = 20L;
+	/**
+	 * The number of buckets in the wheel, a power of 2.
+	 */
+	private static final int WHEEL_SIZE = 64;
+
+	/**
+	 * The buckets of prompts keyed by their deadline modulo the wheel size.
+	 */
+	private final List<List<PendingPrompt>> buckets = new ArrayList<>(WHEEL_SIZE);
+	/**
+	 * The prompts scheduled since the last tick.
+	 */
+	private final Queue<PendingPrompt> scheduled = new ConcurrentLinkedQueue<>();
+	/**
+	 * The number of prompts in the buckets.
+	 */
+	private int size = 0;
+	/**
+	 * The number of ticks the wheel has run.
+	 */
+	private long currentTick = 0;
+
+	PromptTimeoutWheel() {
+		for (int i = 0; i < WHEEL_SIZE; i++) {
+			buckets.add(new ArrayList<>());
+		}
+	}
+
+	/**
+	 * Schedules the prompt to time out after its timeout, counted from the next tick.
+	 *
+	 * @param prompt The prompt to schedule.
+	 */
+	void schedule(PendingPrompt prompt) {
+		scheduled.add(prompt);
+	}
+
+	/**
+	 * Checks if the wheel has no prompts.
+	 *
+	 * @return true if no prompts are scheduled or in the buckets.
+	 */
+	boolean isEmpty() {
+		return size == 0 && scheduled.isEmpty();
+	}
+
+	/**
+	 * Advances the wheel a tick and times out the due prompts that are still pending.
+	 *
+	 * @param isPending Checks if a prompt is still waiting for an answer.
+	 * @param onTimeout Called with each prompt that timed out.
+	 */
+	void tick(Predicate<PendingPrompt> isPending, Consumer<PendingPrompt> onTimeout) {
+		currentTick++;
+
+		PendingPrompt prompt;
+		while ((prompt = scheduled.poll()) != null) {
+			prompt.deadline = currentTick + prompt.timeoutTicks;
+			buckets.get((int) (prompt.deadline & (WHEEL_SIZE - 1))).add(prompt);
+			size++;
+		}
+
+		Iterator<PendingPrompt> iterator = buckets.get((int) (currentTick & (WHEEL_SIZE - 1))).iterator();
+		while (iterator.hasNext()) {
+			prompt = iterator.next();
+			if (!isPending.test(prompt)) {
+				iterator.remove();
+				size--;
+			} else if (prompt.deadline <= currentTick) {
+				iterator.remove();
+				size--;
+				onTimeout.accept(prompt);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,201 @@
+package com.simplexservers.minecraft.bukkitutils.gui;
+
+import java.util.UUID;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+/**
+ * Unit tests for the click limiter of inventory GUIs.
+ */
+public class InventoryGUIClickLimiterTest {
+
+	/**
+	 * The player clicking.
+	 */
+	private final UUID player = UUID.randomUUID();
+	/**
+	 * The GUI being clicked.
+	 */
+	private final InventoryGUI gui = Mockito.mock(InventoryGUI.class);
+
+	/**
+	 * Tests that repeated clicks on the same slot of the same GUI are dropped within the debounce time.
+	 */
+	@Test
+	public void testDebounce() {
+		InventoryGUIClickLimiter limiter = new InventoryGUIClickLimiter(60000L, 0);
+
+		Assert.assertTrue(limiter.tryAcquire(player, gui, 1, null));
+		Assert.assertFalse(limiter.tryAcquire(player, gui, 1, null));
+		Assert.assertTrue(limiter.tryAcquire(player, gui, 2, null));
+		Assert.assertTrue(limiter.tryAcquire(player, gui, 1, null));
+		Assert.assertTrue(limiter.tryAcquire(player, Mockito.mock(InventoryGUI.class), 1, null));
+		Assert.assertTrue(limiter.tryAcquire(UUID.randomUUID(), gui, 1, null));
+
+		Assert.assertEquals(5, limiter.getAccepted());
+		Assert.assertEquals(1, limiter.getDroppedDebounced());
+	}
+
+	/**
+	 * Tests that a repeated click is accepted once the debounce time has passed.
+	 *
+	 * @throws Exception If the test was interrupted.
+	 */
+	@Test
+	public void testDebounceExpires() throws Exception {
+		InventoryGUIClickLimiter limiter = new InventoryGUIClickLimiter(50L, 0);
+
+		Assert.assertTrue(limiter.tryAcquire(player, gui, 1, null));
+		Thread.sleep(100L);
+		Assert.assertTrue(limiter.tryAcquire(player, gui, 1, null));
+		Assert.assertEquals(0, limiter.getDroppedDebounced());
+	}
+
+	/**
+	 * Tests that a player's clicks past the rate are dropped, without limiting other players.
+	 */
+	@Test
+	public void testThrottle() {
+		InventoryGUIClickLimiter limiter = new InventoryGUIClickLimiter(0L, 3);
+
+		for (int slot = 0; slot < 3; slot++) {
+			Assert.assertTrue(limiter.tryAcquire(player, gui, slot, null));
+		}
+		Assert.assertFalse(limiter.tryAcquire(player, gui, 3, null));
+		Assert.assertTrue(limiter.tryAcquire(UUID.randomUUID(), gui, 3, null));
+
+		Assert.assertEquals(4, limiter.getAccepted());
+		Assert.assertEquals(1, limiter.getDroppedThrottled());
+	}
+
+	/**
+	 * Tests that forgetting a player discards their limits.
+	 */
+	@Test
+	public void testForget() {
+		InventoryGUIClickLimiter limiter = new InventoryGUIClickLimiter(0L, 1);
+
+		Assert.assertTrue(limiter.tryAcquire(player, gui, 0, null));
+		Assert.assertFalse(limiter.tryAcquire(player, gui, 1, null));
+		limiter.forget(player);
+		Assert.assertTrue(limiter.tryAcquire(player, gui, 1, null));
+	}
+
+	/**
+	 * Tests that clicks on an IDEMPOTENT entry are dropped while its action is in flight.
+	 */
+	@Test
+	public void testIdempotentInFlight() {
+		InventoryGUIClickLimiter limiter = new InventoryGUIClickLimiter(0L, 0);
+		InventoryGUIEntry entry = createEntry(InventoryGUIClickPolicy.IDEMPOTENT);
+		InventoryGUIEntry otherEntry = createEntry(InventoryGUIClickPolicy.IDEMPOTENT);
+
+		Assert.assertTrue(limiter.tryAcquire(player, gui, 0, entry));
+		Assert.assertFalse(limiter.tryAcquire(player, gui, 0, entry));
+		Assert.assertTrue(limiter.tryAcquire(player, gui, 1, otherEntry));
+		Assert.assertTrue(limiter.tryAcquire(UUID.randomUUID(), gui, 0, entry));
+
+		limiter.release(player, gui, entry);
+		Assert.assertTrue(limiter.tryAcquire(player, gui, 0, entry));
+		Assert.assertEquals(1, limiter.getDroppedInFlight());
+	}
+
+	/**
+	 * Tests that only one EXCLUSIVE action per player and GUI may be in flight.
+	 */
+	@Test
+	public void testExclusiveInFlight() {
+		InventoryGUIClickLimiter limiter = new InventoryGUIClickLimiter(0L, 0);
+		InventoryGUIEntry entry = createEntry(InventoryGUIClickPolicy.EXCLUSIVE);
+		InventoryGUIEntry otherEntry = createEntry(InventoryGUIClickPolicy.EXCLUSIVE);
+
+		Assert.assertTrue(limiter.tryAcquire(player, gui, 0, entry));
+		Assert.assertFalse(limiter.tryAcquire(player, gui, 1, otherEntry));
+		Assert.assertTrue(limiter.tryAcquire(player, Mockito.mock(InventoryGUI.class), 1, otherEntry));
+
+		limiter.release(player, gui, entry);
+		Assert.assertTrue(limiter.tryAcquire(player, gui, 1, otherEntry));
+		Assert.assertEquals(1, limiter.getDroppedInFlight());
+	}
+
+	/**
+	 * Tests that DEFAULT entries run every click.
+	 */
+	@Test
+	public void testDefaultNotTracked() {
+		InventoryGUIClickLimiter limiter = new InventoryGUIClickLimiter(0L, 0);
+		InventoryGUIEntry entry = createEntry(InventoryGUIClickPolicy.DEFAULT);
+
+		Assert.assertTrue(limiter.tryAcquire(player, gui, 0, entry));
+		Assert.assertTrue(limiter.tryAcquire(player, gui, 0, entry));
+		Assert.assertEquals(0, limiter.getDroppedInFlight());
+	}
+
+	/**
+	 * Tests that an action that never completes stops blocking clicks after the in-flight timeout.
+	 *
+	 * @throws Exception If the test was interrupted.
+	 */
+	@Test
+	public void testInFlightTimeout() throws Exception {
+		InventoryGUIClickLimiter limiter = new InventoryGUIClickLimiter(0L, 0, 50L);
+		InventoryGUIEntry entry = createEntry(InventoryGUIClickPolicy.IDEMPOTENT);
+
+		Assert.assertTrue(limiter.tryAcquire(player, gui, 0, entry));
+		Assert.assertFalse(limiter.tryAcquire(player, gui, 0, entry));
+		Thread.sleep(100L);
+		Assert.assertTrue(limiter.tryAcquire(player, gui, 0, entry));
+	}
+
+	/**
+	 * Tests that a player's click state is discarded once their last action completes and they are idle,
+	 * and by sweeps once their clicks no longer limit anything.
+	 *
+	 * @throws Exception If the test was interrupted.
+	 */
+	@Test
+	public void testIdleStatesDiscarded() throws Exception {
+		InventoryGUIClickLimiter limiter = new InventoryGUIClickLimiter(0L, 0);
+		InventoryGUIEntry entry = createEntry(InventoryGUIClickPolicy.IDEMPOTENT);
+
+		Assert.assertTrue(limiter.tryAcquire(player, gui, 0, entry));
+		Assert.assertTrue(limiter.tryAcquire(UUID.randomUUID(), gui, 0, null));
+		limiter.sweep();
+		Assert.assertEquals(2, limiter.getTrackedPlayerCount());
+
+		Thread.sleep(1100L); // Past the rate window
+		limiter.release(player, gui, entry);
+		Assert.assertEquals(1, limiter.getTrackedPlayerCount());
+		limiter.sweep();
+		Assert.assertEquals(0, limiter.getTrackedPlayerCount());
+	}
+
+	/**
+	 * Tests that negative limits are rejected.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeLimits() {
+		new InventoryGUIClickLimiter(-1L, 0);
+	}
+
+	/**
+	 * Tests that an in-flight timeout that isn't positive is rejected.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidInFlightTimeout() {
+		new InventoryGUIClickLimiter(0L, 0, 0L);
+	}
+
+	/**
+	 * Creates an entry with an action that never completes on its own.
+	 *
+	 * @param policy The click policy of the entry.
+	 * @return The entry.
+	 */
+	private static InventoryGUIEntry createEntry(InventoryGUIClickPolicy policy) {
+		return new InventoryGUIEntry(null, policy.name(), policy, (player, gui, value, click) -> null);
+	}
+
+}
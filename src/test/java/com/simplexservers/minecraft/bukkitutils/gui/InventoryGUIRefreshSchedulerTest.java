@@ -0,0 +1,166 @@
+package com.simplexservers.minecraft.bukkitutils.gui;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+/**
+ * Unit tests for the tick-budgeted refresh scheduler of inventory GUIs.
+ */
+public class InventoryGUIRefreshSchedulerTest {
+
+	/**
+	 * The GUIs refreshed since the last check, in the order they were refreshed.
+	 */
+	private final List<InventoryGUI> refreshed = new ArrayList<>();
+	/**
+	 * The GUIs that have no viewers.
+	 */
+	private final Set<InventoryGUI> unviewed = new HashSet<>();
+	/**
+	 * The scheduler being tested.
+	 */
+	private final InventoryGUIRefreshScheduler scheduler = new InventoryGUIRefreshScheduler(gui -> !unviewed.contains(gui));
+
+	/**
+	 * Tests that a GUI is refreshed once every period.
+	 */
+	@Test
+	public void testPeriod() {
+		InventoryGUI gui = register(3);
+
+		List<Integer> refreshTicks = new ArrayList<>();
+		for (int tick = 1; tick <= 9; tick++) {
+			List<InventoryGUI> ran = tick();
+			if (!ran.isEmpty()) {
+				Assert.assertEquals(Collections.singletonList(gui), ran);
+				refreshTicks.add(tick);
+			}
+		}
+		Assert.assertEquals(3, refreshTicks.size());
+		Assert.assertEquals(3, refreshTicks.get(1) - refreshTicks.get(0));
+		Assert.assertEquals(3, refreshTicks.get(2) - refreshTicks.get(1));
+	}
+
+	/**
+	 * Tests that registrations with the same period are spread over the period's ticks.
+	 */
+	@Test
+	public void testStaggering() {
+		for (int i = 0; i < 4; i++) {
+			register(4);
+		}
+
+		for (int tick = 1; tick <= 8; tick++) {
+			Assert.assertEquals("Refreshes on tick " + tick, 1, tick().size());
+		}
+	}
+
+	/**
+	 * Tests that refreshes past the tick's budget are left for the following ticks, without being skipped.
+	 */
+	@Test
+	public void testBudget() {
+		List<InventoryGUI> guis = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			guis.add(register(1));
+		}
+		scheduler.setTickBudgetNanos(0); // Every refresh spends the budget
+
+		Set<InventoryGUI> seen = new HashSet<>();
+		for (int tick = 1; tick <= 3; tick++) {
+			List<InventoryGUI> ran = tick();
+			Assert.assertEquals("Refreshes on tick " + tick, 1, ran.size());
+			seen.addAll(ran);
+		}
+		Assert.assertEquals(new HashSet<>(guis), seen);
+	}
+
+	/**
+	 * Tests that GUIs without viewers aren't refreshed until they have viewers again.
+	 */
+	@Test
+	public void testNoViewers() {
+		InventoryGUI gui = register(3);
+		unviewed.add(gui);
+		Assert.assertTrue(tick().isEmpty());
+
+		unviewed.remove(gui);
+		Assert.assertTrue(tick().isEmpty());
+		Assert.assertTrue(tick().isEmpty());
+		Assert.assertEquals(Collections.singletonList(gui), tick());
+	}
+
+	/**
+	 * Tests that registrations whose GUI goes a full period without viewers are dropped.
+	 */
+	@Test
+	public void testUnviewedDropped() {
+		InventoryGUI gui = register(2);
+		unviewed.add(gui);
+		for (int tick = 1; tick <= 3; tick++) {
+			Assert.assertTrue(tick().isEmpty());
+		}
+
+		unviewed.remove(gui);
+		for (int tick = 1; tick <= 4; tick++) {
+			Assert.assertTrue("The dropped refresher should not run", tick().isEmpty());
+		}
+	}
+
+	/**
+	 * Tests that unregistered GUIs and replaced registrations stop being refreshed.
+	 */
+	@Test
+	public void testUnregister() {
+		InventoryGUI gui = register(1);
+		Assert.assertEquals(Collections.singletonList(gui), tick());
+
+		scheduler.unregister(gui);
+		Assert.assertTrue(tick().isEmpty());
+
+		List<InventoryGUI> replaced = new ArrayList<>();
+		scheduler.register(gui, 1, replaced::add);
+		scheduler.register(gui, 1, refreshed::add);
+		Assert.assertEquals(Collections.singletonList(gui), tick());
+		Assert.assertTrue("The replaced refresher should not run", replaced.isEmpty());
+	}
+
+	/**
+	 * Tests that a period that isn't positive is rejected.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidPeriod() {
+		register(0);
+	}
+
+	/**
+	 * Registers a GUI that records its refreshes.
+	 *
+	 * @param periodTicks How often, in ticks, the GUI is refreshed.
+	 * @return The registered GUI.
+	 */
+	private InventoryGUI register(long periodTicks) {
+		InventoryGUI gui = Mockito.mock(InventoryGUI.class);
+		scheduler.register(gui, periodTicks, refreshed::add);
+		return gui;
+	}
+
+	/**
+	 * Runs a tick of the scheduler.
+	 *
+	 * @return The GUIs refreshed during the tick.
+	 */
+	private List<InventoryGUI> tick() {
+		refreshed.clear();
+		scheduler.tick();
+		return new ArrayList<>(refreshed);
+	}
+
+}
@@ -0,0 +1,78 @@
+package com.simplexservers.minecraft.bukkitutils.gui;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+import org.bukkit.event.inventory.ClickType;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryHolder;
+import org.bukkit.inventory.ItemStack;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+
+/**
+ * Unit tests for inventory GUIs.
+ */
+public class InventoryGUITest {
+
+	/**
+	 * The GUI being tested.
+	 */
+	private InventoryGUI gui;
+
+	/**
+	 * Stubs the Bukkit server's inventories and creates the GUI.
+	 */
+	@Before
+	public void setUp() {
+		if (Bukkit.getServer() == null) {
+			Server server = Mockito.mock(Server.class);
+			Mockito.when(server.getLogger()).thenReturn(Logger.getLogger("InventoryGUITest"));
+			Bukkit.setServer(server);
+		}
+		Inventory inventory = Mockito.mock(Inventory.class);
+		Mockito.when(inventory.getSize()).thenReturn(27);
+		Mockito.when(Bukkit.getServer().createInventory(Matchers.any(InventoryHolder.class), Matchers.anyInt(), Matchers.anyString()))
+				.thenReturn(inventory);
+
+		gui = new InventoryGUI(Mockito.mock(InventoryGUIManager.class), "Test", 27);
+	}
+
+	/**
+	 * Tests that updating the item of entries with a value keeps their handlers and click policy.
+	 */
+	@Test
+	public void testUpdateEntriesWithValueKeepsHandlers() {
+		InventoryGUIClickHandler<String> clickHandler = (player, clickedGUI, value, click) -> {};
+		Map<ClickType, InventoryGUIClickHandler<String>> clickHandlers = Collections.singletonMap(ClickType.RIGHT, clickHandler);
+		InventoryGUIActionHandler<String> actionHandler = (player, clickedGUI, value, click) -> null;
+
+		gui.stageEntry(0, new InventoryGUIEntry(Mockito.mock(ItemStack.class), "button", clickHandlers));
+		gui.stageEntry(1, new InventoryGUIEntry(Mockito.mock(ItemStack.class), "button", InventoryGUIClickPolicy.IDEMPOTENT, actionHandler));
+		gui.stageEntry(2, new InventoryGUIEntry(Mockito.mock(ItemStack.class), "other"));
+		gui.commitChanges();
+
+		ItemStack updated = Mockito.mock(ItemStack.class);
+		Assert.assertEquals(2, gui.updateEntriesWithValue("button", updated));
+
+		InventoryGUIEntry first = gui.getEntry(0);
+		Assert.assertSame(updated, first.getItemStack());
+		Assert.assertEquals("button", first.getValue());
+		Assert.assertSame(clickHandler, first.getClickHandler(ClickType.RIGHT));
+		Assert.assertNull(first.getClickHandler(ClickType.LEFT));
+
+		InventoryGUIEntry second = gui.getEntry(1);
+		Assert.assertSame(updated, second.getItemStack());
+		Assert.assertSame(actionHandler, second.getActionHandler());
+		Assert.assertEquals(InventoryGUIClickPolicy.IDEMPOTENT, second.getClickPolicy());
+
+		Assert.assertNotSame(updated, gui.getEntry(2).getItemStack());
+	}
+
+}
@@ -0,0 +1,174 @@
+package com.simplexservers.minecraft.bukkitutils.gui;
+
+import java.util.BitSet;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for the slot table of inventory GUIs.
+ */
+public class SlotTableTest {
+
+	/**
+	 * Tests that entries are stored at their slot and replaced by later puts.
+	 */
+	@Test
+	public void testPutAndGet() {
+		SlotTable table = new SlotTable();
+		InventoryGUIEntry first = new InventoryGUIEntry(null, "first");
+		InventoryGUIEntry second = new InventoryGUIEntry(null, "second");
+
+		Assert.assertNull(table.put(0, first));
+		Assert.assertSame(first, table.get(0));
+		Assert.assertSame(first, table.put(0, second));
+		Assert.assertSame(second, table.get(0));
+		Assert.assertNull(table.get(1));
+	}
+
+	/**
+	 * Tests that slots outside the table read as empty and can't be written.
+	 */
+	@Test
+	public void testSlotBounds() {
+		SlotTable table = new SlotTable();
+		InventoryGUIEntry entry = new InventoryGUIEntry(null, "entry");
+		table.put(SlotTable.MAX_SLOTS - 1, entry);
+
+		Assert.assertSame(entry, table.get(SlotTable.MAX_SLOTS - 1));
+		Assert.assertNull(table.get(-1));
+		Assert.assertNull(table.get(SlotTable.MAX_SLOTS));
+		Assert.assertNull(table.remove(-1));
+		Assert.assertNull(table.remove(SlotTable.MAX_SLOTS));
+
+		for (int slot : new int[] {-1, SlotTable.MAX_SLOTS}) {
+			try {
+				table.put(slot, entry);
+				Assert.fail("Putting an entry at slot " + slot + " should fail");
+			} catch (IllegalArgumentException e) {
+				// Expected
+			}
+		}
+	}
+
+	/**
+	 * Tests that removing and putting null both empty the slot.
+	 */
+	@Test
+	public void testRemove() {
+		SlotTable table = new SlotTable();
+		InventoryGUIEntry entry = new InventoryGUIEntry(null, "entry");
+		table.put(5, entry);
+		table.put(6, entry);
+
+		Assert.assertSame(entry, table.remove(5));
+		Assert.assertNull(table.remove(5));
+		Assert.assertSame(entry, table.put(6, null));
+		Assert.assertNull(table.get(6));
+		Assert.assertTrue(table.isEmpty());
+	}
+
+	/**
+	 * Tests iterating the occupied slots and finding the highest one.
+	 */
+	@Test
+	public void testIteration() {
+		SlotTable table = new SlotTable();
+		Assert.assertTrue(table.isEmpty());
+		Assert.assertEquals(-1, table.getHighestSlot());
+		Assert.assertEquals(-1, table.nextSlot(0));
+
+		int[] slots = {0, 9, 17, SlotTable.MAX_SLOTS - 1};
+		for (int slot : slots) {
+			table.put(slot, new InventoryGUIEntry(null, slot));
+		}
+
+		int index = 0;
+		for (int slot = table.nextSlot(0); slot >= 0; slot = table.nextSlot(slot + 1)) {
+			Assert.assertEquals(slots[index++], slot);
+		}
+		Assert.assertEquals(slots.length, index);
+		Assert.assertEquals(SlotTable.MAX_SLOTS - 1, table.getHighestSlot());
+		Assert.assertEquals(-1, table.nextSlot(SlotTable.MAX_SLOTS));
+		Assert.assertFalse(table.isEmpty());
+	}
+
+	/**
+	 * Tests that a copy holds the same entries and is independent of the original.
+	 */
+	@Test
+	public void testCopy() {
+		SlotTable table = new SlotTable();
+		InventoryGUIEntry entry = new InventoryGUIEntry(null, "entry");
+		table.put(3, entry);
+
+		SlotTable copy = table.copy();
+		Assert.assertSame(entry, copy.get(3));
+
+		copy.remove(3);
+		copy.put(4, entry);
+		Assert.assertSame(entry, table.get(3));
+		Assert.assertNull(table.get(4));
+		Assert.assertEquals(bits(3), table.getSlotsWithValue("entry"));
+		Assert.assertEquals(bits(4), copy.getSlotsWithValue("entry"));
+	}
+
+	/**
+	 * Tests that the reverse index follows entries as they are put, replaced and removed.
+	 */
+	@Test
+	public void testSlotsWithValue() {
+		SlotTable table = new SlotTable();
+		table.put(1, new InventoryGUIEntry(null, "shared"));
+		table.put(7, new InventoryGUIEntry(null, "shared"));
+		table.put(8, new InventoryGUIEntry(null, "other"));
+		Assert.assertEquals(bits(1, 7), table.getSlotsWithValue("shared"));
+		Assert.assertEquals(bits(8), table.getSlotsWithValue("other"));
+		Assert.assertEquals(bits(), table.getSlotsWithValue("missing"));
+
+		table.put(7, new InventoryGUIEntry(null, "other"));
+		Assert.assertEquals(bits(1), table.getSlotsWithValue("shared"));
+		Assert.assertEquals(bits(7, 8), table.getSlotsWithValue("other"));
+
+		table.remove(1);
+		table.put(8, null);
+		Assert.assertEquals(bits(), table.getSlotsWithValue("shared"));
+		Assert.assertEquals(bits(7), table.getSlotsWithValue("other"));
+	}
+
+	/**
+	 * Tests that entries without a custom value are indexed under null.
+	 */
+	@Test
+	public void testSlotsWithNullValue() {
+		SlotTable table = new SlotTable();
+		table.put(2, new InventoryGUIEntry(null, null));
+		Assert.assertEquals(bits(2), table.getSlotsWithValue(null));
+
+		table.remove(2);
+		Assert.assertEquals(bits(), table.getSlotsWithValue(null));
+	}
+
+	/**
+	 * Tests that the returned slots are a copy that doesn't change the index.
+	 */
+	@Test
+	public void testSlotsWithValueIsCopy() {
+		SlotTable table = new SlotTable();
+		table.put(4, new InventoryGUIEntry(null, "entry"));
+
+		table.getSlotsWithValue("entry").set(5);
+		table.getSlotsWithValue("missing").set(6);
+		Assert.assertEquals(bits(4), table.getSlotsWithValue("entry"));
+		Assert.assertEquals(bits(), table.getSlotsWithValue("missing"));
+	}
+
+	private static BitSet bits(int... slots) {
+		BitSet bits = new BitSet();
+		for (int slot : slots) {
+			bits.set(slot);
+		}
+		return bits;
+	}
+
+}
@@ -0,0 +1,95 @@
+package com.simplexservers.minecraft.bukkitutils.nms;
+
+import org.bukkit.ChatColor;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for the JSON serialization of chat components.
+ */
+public class ChatComponentTest {
+
+	/**
+	 * Tests that plain text is serialized as a text component.
+	 */
+	@Test
+	public void testPlainText() {
+		Assert.assertEquals("{\"text\":\"Hello\"}", new ChatComponent("Hello").toJson());
+		Assert.assertEquals("{\"text\":\"\"}", new ChatComponent("").toJson());
+	}
+
+	/**
+	 * Tests that quotes, backslashes and control characters are escaped.
+	 */
+	@Test
+	public void testEscaping() {
+		Assert.assertEquals("{\"text\":\"say \\\"hi\\\"\"}", new ChatComponent("say \"hi\"").toJson());
+		Assert.assertEquals("{\"text\":\"C:\\\\path\\\\\"}", new ChatComponent("C:\\path\\").toJson());
+		Assert.assertEquals("{\"text\":\"a\\nb\\rc\\td\"}", new ChatComponent("a\nb\rc\td").toJson());
+		Assert.assertEquals("{\"text\":\"\\u0000\\u001f\"}", new ChatComponent("\u0000\u001f").toJson());
+		Assert.assertEquals("{\"text\":\"\u00a7a\u00e9\u2603\"}", new ChatComponent("\u00a7a\u00e9\u2603").toJson());
+	}
+
+	/**
+	 * Tests that the color and the set style flags are serialized, and unset flags are left out.
+	 */
+	@Test
+	public void testStyle() {
+		ChatComponent component = new ChatComponent("Styled")
+				.setColor(ChatColor.DARK_RED)
+				.setBold(true)
+				.setItalic(false)
+				.setUnderlined(true)
+				.setStrikethrough(false)
+				.setObfuscated(true);
+
+		Assert.assertEquals("{\"text\":\"Styled\",\"color\":\"dark_red\",\"bold\":true,\"italic\":false," +
+				"\"underlined\":true,\"strikethrough\":false,\"obfuscated\":true}", component.toJson());
+		Assert.assertEquals("{\"text\":\"Plain\"}", new ChatComponent("Plain").setColor(null).toJson());
+	}
+
+	/**
+	 * Tests that appended components are serialized as escaped extras in order.
+	 */
+	@Test
+	public void testExtra() {
+		ChatComponent component = new ChatComponent("a")
+				.append(new ChatComponent("\"b\"").setBold(true))
+				.append(new ChatComponent("c").append(new ChatComponent("d")));
+
+		Assert.assertEquals("{\"text\":\"a\",\"extra\":[{\"text\":\"\\\"b\\\"\",\"bold\":true}," +
+				"{\"text\":\"c\",\"extra\":[{\"text\":\"d\"}]}]}", component.toJson());
+	}
+
+	/**
+	 * Tests that serializing a large component doesn't affect later components serialized on the thread.
+	 */
+	@Test
+	public void testBufferReuse() {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 4096; i++) {
+			text.append('x');
+		}
+
+		String large = new ChatComponent(text.toString()).toJson();
+		Assert.assertEquals(text.length() + "{\"text\":\"\"}".length(), large.length());
+		Assert.assertEquals("{\"text\":\"small\"}", new ChatComponent("small").toJson());
+	}
+
+	/**
+	 * Tests that null text is rejected.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testNullText() {
+		new ChatComponent(null);
+	}
+
+	/**
+	 * Tests that formats are rejected as colors.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testFormatColor() {
+		new ChatComponent("text").setColor(ChatColor.BOLD);
+	}
+
+}
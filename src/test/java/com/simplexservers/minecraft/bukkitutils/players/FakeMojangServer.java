@@ -0,0 +1,192 @@
+package com.simplexservers.minecraft.bukkitutils.players;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A local HTTP server answering the Mojang API profile lookups for a known set of players.
+ */
+public class FakeMojangServer {
+
+	/**
+	 * The path of username to UUID lookups.
+	 */
+	static final String UUID_PATH = "/users/profiles/minecraft/";
+	/**
+	 * The path of UUID to name history lookups.
+	 */
+	static final String NAMES_PATH = "/user/profiles/";
+
+	/**
+	 * The UUIDs of the known players keyed by their lowercase username.
+	 */
+	private final Map<String, UUID> uuids = new ConcurrentHashMap<>();
+	/**
+	 * The usernames of the known players keyed by their UUID.
+	 */
+	private final Map<UUID, String> usernames = new ConcurrentHashMap<>();
+	/**
+	 * The number of lookups answered.
+	 */
+	private final AtomicLong requestCount = new AtomicLong();
+	/**
+	 * The time, in milliseconds, each response is delayed for to simulate the network.
+	 */
+	private final long latencyMillis;
+	/**
+	 * The status every lookup is answered with instead of its result, or 0 to answer normally.
+	 */
+	private volatile int forcedStatus = 0;
+	/**
+	 * The body every lookup is answered with in a 200 response instead of its result, or null to answer normally.
+	 */
+	private volatile String forcedBody = null;
+	private final HttpServer server;
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+
+	/**
+	 * Creates and starts a FakeMojangServer on a free local port.
+	 *
+	 * @param latencyMillis The time, in milliseconds, each response is delayed for.
+	 * @throws IOException If the server could not be started.
+	 */
+	public FakeMojangServer(long latencyMillis) throws IOException {
+		this.latencyMillis = latencyMillis;
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		server.createContext("/", this::handle);
+		server.setExecutor(executor);
+		server.start();
+	}
+
+	/**
+	 * Adds a player the server knows about.
+	 *
+	 * @param uuid The UUID of the player.
+	 * @param username The username of the player.
+	 */
+	public void addPlayer(UUID uuid, String username) {
+		uuids.put(username.toLowerCase(), uuid);
+		usernames.put(uuid, username);
+	}
+
+	/**
+	 * Answers every lookup with the status and an error body instead of its result.
+	 *
+	 * @param status The HTTP status, or 0 to answer lookups normally.
+	 */
+	public void setForcedStatus(int status) {
+		forcedStatus = status;
+	}
+
+	/**
+	 * Answers every lookup with a 200 response with the body instead of its result.
+	 *
+	 * @param body The response body, which doesn't need to be JSON, or null to answer lookups normally.
+	 */
+	public void setForcedBody(String body) {
+		forcedBody = body;
+	}
+
+	/**
+	 * Gets the base URL of the server.
+	 *
+	 * @return The base URL, without a trailing slash.
+	 */
+	public String getBaseURL() {
+		return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+	}
+
+	public long getRequestCount() {
+		return requestCount.get();
+	}
+
+	/**
+	 * Stops the server.
+	 */
+	public void stop() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Answers a lookup.
+	 *
+	 * @param exchange The HTTP request and response.
+	 * @throws IOException If an error occurred writing the response.
+	 */
+	private void handle(HttpExchange exchange) throws IOException {
+		requestCount.incrementAndGet();
+		if (latencyMillis > 0) {
+			try {
+				Thread.sleep(latencyMillis);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		int status = forcedStatus;
+		if (status != 0) {
+			sendResponse(exchange, status, "{\"error\":\"Forced\",\"errorMessage\":\"Status " + status + "\"}");
+			return;
+		}
+		String forced = forcedBody;
+		if (forced != null) {
+			sendResponse(exchange, 200, forced);
+			return;
+		}
+
+		String path = exchange.getRequestURI().getPath();
+		String body = null;
+		if (path.startsWith(UUID_PATH)) {
+			String username = path.substring(UUID_PATH.length());
+			UUID uuid = uuids.get(username.toLowerCase());
+			if (uuid != null) {
+				body = "{\"id\":\"" + uuid.toString().replace("-", "") + "\",\"name\":\"" + usernames.get(uuid) + "\"}";
+			}
+		} else if (path.startsWith(NAMES_PATH) && path.endsWith("/names")) {
+			String hex = path.substring(NAMES_PATH.length(), path.length() - "/names".length());
+			String username = hex.length() == 32 ? usernames.get(UUIDCodec.fromHex(hex)) : null;
+			if (username != null) {
+				body = "[{\"name\":\"" + username + "\"}]";
+			}
+		}
+
+		if (body == null) {
+			exchange.sendResponseHeaders(204, -1);
+			exchange.close();
+		} else {
+			sendResponse(exchange, 200, body);
+		}
+	}
+
+	/**
+	 * Sends a response, labelled as JSON.
+	 *
+	 * @param exchange The HTTP request and response.
+	 * @param status The HTTP status.
+	 * @param body The body.
+	 * @throws IOException If an error occurred writing the response.
+	 */
+	private static void sendResponse(HttpExchange exchange, int status, String body) throws IOException {
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "application/json");
+		exchange.sendResponseHeaders(status, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+		exchange.close();
+	}
+
+}
@@ -0,0 +1,205 @@
+package com.simplexservers.minecraft.bukkitutils.players;
+
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the Mojang API HTTP client, run against a FakeMojangServer.
+ */
+public class MojangHttpClientTest {
+
+	/**
+	 * A player the server knows about.
+	 */
+	private static final UUID NOTCH_UUID = UUID.fromString("069a79f4-44e9-4726-a5be-fca90e38aaf5");
+
+	/**
+	 * The server the client requests.
+	 */
+	private FakeMojangServer server;
+	/**
+	 * The client being tested.
+	 */
+	private MojangHttpClient client;
+
+	/**
+	 * Starts the server and creates the client.
+	 *
+	 * @throws Exception If the server could not be started.
+	 */
+	@Before
+	public void setUp() throws Exception {
+		server = new FakeMojangServer(0);
+		server.addPlayer(NOTCH_UUID, "Notch");
+		client = new MojangHttpClient(server.getBaseURL(), 1000, 1000, 2);
+	}
+
+	/**
+	 * Stops the server.
+	 */
+	@After
+	public void tearDown() {
+		server.stop();
+	}
+
+	/**
+	 * Tests that known players are resolved from 200 responses.
+	 *
+	 * @throws Exception If a request failed.
+	 */
+	@Test
+	public void testFound() throws Exception {
+		Assert.assertEquals(NOTCH_UUID, client.requestUUID("Notch"));
+		Assert.assertEquals(NOTCH_UUID, client.requestUUID("notch"));
+		Assert.assertEquals("Notch", client.requestUsername(NOTCH_UUID));
+	}
+
+	/**
+	 * Tests that unknown players, answered with 204, resolve to null.
+	 *
+	 * @throws Exception If a request failed.
+	 */
+	@Test
+	public void testNoContent() throws Exception {
+		Assert.assertNull(client.requestUUID("jeb_"));
+		Assert.assertNull(client.requestUsername(UUID.randomUUID()));
+	}
+
+	/**
+	 * Tests that lookups answered with 404 resolve to null.
+	 *
+	 * @throws Exception If a request failed.
+	 */
+	@Test
+	public void testNotFound() throws Exception {
+		server.setForcedStatus(404);
+		Assert.assertNull(client.requestUUID("Notch"));
+		Assert.assertNull(client.requestUsername(NOTCH_UUID));
+	}
+
+	/**
+	 * Tests that server errors fail the lookup, and that the client recovers once the server does.
+	 *
+	 * @throws Exception If a request failed after the server recovered.
+	 */
+	@Test
+	public void testServerError() throws Exception {
+		for (int status : new int[] {500, 503}) {
+			server.setForcedStatus(status);
+			try {
+				client.requestUUID("Notch");
+				Assert.fail("A " + status + " response should fail the UUID lookup");
+			} catch (IOException e) {
+				// Expected
+			}
+			try {
+				client.requestUsername(NOTCH_UUID);
+				Assert.fail("A " + status + " response should fail the username lookup");
+			} catch (IOException e) {
+				// Expected
+			}
+		}
+
+		server.setForcedStatus(0);
+		Assert.assertEquals(NOTCH_UUID, client.requestUUID("Notch"));
+	}
+
+	/**
+	 * Tests that 200 responses whose body isn't the expected JSON fail the lookup with an IOException:
+	 * an HTML error page, JSON of the wrong shape and a truncated body.
+	 *
+	 * @throws Exception If a request failed after the server recovered.
+	 */
+	@Test
+	public void testInvalidBody() throws Exception {
+		for (String body : new String[] {"<html><body>Service Unavailable</body></html>", "42", "\"error\"", "{\"id\":\"069a"}) {
+			server.setForcedBody(body);
+			try {
+				client.requestUUID("Notch");
+				Assert.fail("The body '" + body + "' should fail the UUID lookup");
+			} catch (IOException e) {
+				// Expected
+			}
+			try {
+				client.requestUsername(NOTCH_UUID);
+				Assert.fail("The body '" + body + "' should fail the username lookup");
+			} catch (IOException e) {
+				// Expected
+			}
+		}
+
+		server.setForcedBody(null);
+		Assert.assertEquals(NOTCH_UUID, client.requestUUID("Notch"));
+	}
+
+	/**
+	 * Tests that usernames with characters reserved in URLs reach the server unchanged.
+	 *
+	 * @throws Exception If a request failed.
+	 */
+	@Test
+	public void testEncodedUsername() throws Exception {
+		UUID uuid = UUID.randomUUID();
+		String username = "A b+c/d?e#f%g";
+		server.addPlayer(uuid, username);
+
+		Assert.assertEquals(uuid, client.requestUUID(username));
+		Assert.assertEquals(username, client.requestUsername(uuid));
+	}
+
+	/**
+	 * Tests that a base URL with a trailing slash is requested without a double slash.
+	 *
+	 * @throws Exception If a request failed.
+	 */
+	@Test
+	public void testTrailingSlashBaseURL() throws Exception {
+		MojangHttpClient slashClient = new MojangHttpClient(server.getBaseURL() + "/", 1000, 1000, 2);
+		Assert.assertEquals(NOTCH_UUID, slashClient.requestUUID("Notch"));
+		Assert.assertEquals("Notch", slashClient.requestUsername(NOTCH_UUID));
+	}
+
+	/**
+	 * Tests that a request fails once it has waited the connect timeout for a free connection.
+	 *
+	 * @throws Exception If the server could not be started.
+	 */
+	@Test
+	public void testWaitForConnectionTimesOut() throws Exception {
+		FakeMojangServer slowServer = new FakeMojangServer(2000);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			slowServer.addPlayer(NOTCH_UUID, "Notch");
+			MojangHttpClient slowClient = new MojangHttpClient(slowServer.getBaseURL(), 200, 5000, 1);
+
+			// Hold the only connection with a slow request
+			Future<UUID> slowRequest = executor.submit(() -> slowClient.requestUUID("Notch"));
+			Thread.sleep(500);
+
+			long start = System.nanoTime();
+			try {
+				slowClient.requestUsername(NOTCH_UUID);
+				Assert.fail("The request should time out waiting for a free connection");
+			} catch (IOException e) {
+				// Expected
+			}
+			Assert.assertTrue("The request should stop waiting after the connect timeout",
+					TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+
+			Assert.assertEquals(NOTCH_UUID, slowRequest.get(5, TimeUnit.SECONDS));
+		} finally {
+			executor.shutdownNow();
+			slowServer.stop();
+		}
+	}
+
+}
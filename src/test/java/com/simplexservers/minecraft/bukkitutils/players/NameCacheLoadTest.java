@@ -0,0 +1,290 @@
+package com.simplexservers.minecraft.bukkitutils.players;
+
+import com.simplexservers.minecraft.fileutils.db.DBConnection;
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.scheduler.BukkitScheduler;
+import org.bukkit.scheduler.BukkitTask;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.net.InetAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * A load test that reproduces a join storm against the players package.
+ *
+ * Joins are fired through NameCacheListener at a fixed rate while lookup threads resolve
+ * random players through NameResolver, backed by SQLite, a stubbed Bukkit server and a FakeMojangServer.
+ * Only runs when the players.loadtest system property is true, and is tuned with these properties:
+ * players.loadtest.players, players.loadtest.joinsPerSecond, players.loadtest.seconds,
+ * players.loadtest.lookupThreads and players.loadtest.mojangLatencyMillis.
+ */
+public class NameCacheLoadTest {
+
+	private static final String PROPERTY_PREFIX = "players.loadtest.";
+
+	private final int playerCount = Integer.getInteger(PROPERTY_PREFIX + "players", 20000);
+	private final int joinsPerSecond = Integer.getInteger(PROPERTY_PREFIX + "joinsPerSecond", 500);
+	private final int seconds = Integer.getInteger(PROPERTY_PREFIX + "seconds", 20);
+	private final int lookupThreads = Integer.getInteger(PROPERTY_PREFIX + "lookupThreads", 8);
+	private final long mojangLatencyMillis = Long.getLong(PROPERTY_PREFIX + "mojangLatencyMillis", 50L);
+
+	private FakeMojangServer mojangServer;
+	private Path dbFile;
+	private Connection connection;
+	private ExecutorService asyncTaskExecutor;
+	private SingleConnectionSource connectionSource;
+	private NameCache cache;
+	private NameResolver resolver;
+	private String[] usernames;
+	private UUID[] uuids;
+
+	@Before
+	public void setUp() throws Exception {
+		Assume.assumeTrue("Set -Dplayers.loadtest=true to run the load test", Boolean.getBoolean("players.loadtest"));
+
+		// Stub the parts of the Bukkit server the players package uses
+		asyncTaskExecutor = Executors.newCachedThreadPool();
+		if (Bukkit.getServer() == null) {
+			Server server = Mockito.mock(Server.class);
+			Mockito.when(server.getLogger()).thenReturn(Logger.getLogger("NameCacheLoadTest"));
+			BukkitScheduler scheduler = Mockito.mock(BukkitScheduler.class);
+			Mockito.when(scheduler.runTaskAsynchronously(Matchers.any(Plugin.class), Matchers.any(Runnable.class))).thenAnswer(invocation -> {
+				asyncTaskExecutor.execute((Runnable) invocation.getArguments()[1]);
+				return Mockito.mock(BukkitTask.class);
+			});
+			Mockito.when(server.getScheduler()).thenReturn(scheduler);
+			Bukkit.setServer(server);
+		}
+
+		JavaPlugin plugin = Mockito.mock(JavaPlugin.class);
+
+		dbFile = Files.createTempFile("namecache-loadtest", ".db");
+		connection = DriverManager.getConnection("jdbc:sqlite:" + dbFile);
+		DBConnection dbConn = Mockito.mock(DBConnection.class);
+		Mockito.when(dbConn.getConnection()).thenReturn(connection);
+
+		connectionSource = new SingleConnectionSource(dbConn::getConnection, dbConn::close);
+		cache = new NameCache(plugin, new SQLNameCacheBackend(SQLDialect.SQLITE, connectionSource));
+		Assert.assertTrue(cache.initializeDatabase());
+
+		mojangServer = new FakeMojangServer(mojangLatencyMillis);
+		resolver = new NameResolver(cache, new MojangHttpClient(mojangServer.getBaseURL(), 5000, 5000, lookupThreads));
+
+		Random random = new Random(0);
+		usernames = new String[playerCount];
+		uuids = new UUID[playerCount];
+		for (int i = 0; i < playerCount; i++) {
+			usernames[i] = "LoadTest" + i;
+			uuids[i] = new UUID(random.nextLong(), random.nextLong());
+			mojangServer.addPlayer(uuids[i], usernames[i]);
+		}
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		if (mojangServer != null) {
+			mojangServer.stop();
+		}
+		if (asyncTaskExecutor != null) {
+			asyncTaskExecutor.shutdownNow();
+		}
+		if (connection != null) {
+			connection.close();
+		}
+		if (dbFile != null) {
+			Files.deleteIfExists(dbFile);
+		}
+	}
+
+	/**
+	 * Runs the join storm and prints the report.
+	 */
+	@Test
+	public void testJoinStorm() throws Exception {
+		ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+		if (threadBean.isThreadContentionMonitoringSupported()) {
+			threadBean.setThreadContentionMonitoringEnabled(true);
+		}
+
+		List<Thread> workers = new ArrayList<>();
+		ThreadFactory workerFactory = runnable -> {
+			Thread thread = new Thread(runnable);
+			synchronized (workers) {
+				workers.add(thread);
+			}
+			return thread;
+		};
+
+		NameCacheListener listener = new NameCacheListener(cache);
+		ExecutorService joinExecutor = Executors.newFixedThreadPool(4, workerFactory);
+		ScheduledExecutorService joinScheduler = Executors.newSingleThreadScheduledExecutor();
+		ExecutorService lookupExecutor = Executors.newFixedThreadPool(lookupThreads, workerFactory);
+
+		AtomicInteger nextJoin = new AtomicInteger();
+		AtomicLong errors = new AtomicLong();
+		LatencyRecorder joinLatencies = new LatencyRecorder();
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+
+		// Fire the joins in batches every 10ms
+		int joinsPerBatch = Math.max(1, joinsPerSecond / 100);
+		joinScheduler.scheduleAtFixedRate(() -> {
+			for (int i = 0; i < joinsPerBatch; i++) {
+				int player = nextJoin.getAndIncrement();
+				if (player >= playerCount) {
+					return;
+				}
+
+				joinExecutor.execute(() -> {
+					try {
+						AsyncPlayerPreLoginEvent event = new AsyncPlayerPreLoginEvent(usernames[player], InetAddress.getLoopbackAddress(), uuids[player]);
+						long start = System.nanoTime();
+						listener.onPlayerPreLogin(event);
+						joinLatencies.record(System.nanoTime() - start);
+					} catch (RuntimeException e) {
+						errors.incrementAndGet();
+					}
+				});
+			}
+		}, 0, 10, TimeUnit.MILLISECONDS);
+
+		// Look up random players, joined or not, until the deadline
+		List<LatencyRecorder> lookupLatencies = new ArrayList<>();
+		for (int thread = 0; thread < lookupThreads; thread++) {
+			LatencyRecorder latencies = new LatencyRecorder();
+			lookupLatencies.add(latencies);
+			Random random = new Random(thread);
+			lookupExecutor.execute(() -> {
+				while (System.nanoTime() < deadline) {
+					int player = random.nextInt(playerCount);
+					long start = System.nanoTime();
+					try {
+						if (random.nextBoolean()) {
+							if (!uuids[player].equals(resolver.getUUID(usernames[player]))) {
+								errors.incrementAndGet();
+							}
+						} else if (!usernames[player].equals(resolver.getUsername(uuids[player]))) {
+							errors.incrementAndGet();
+						}
+					} catch (RuntimeException e) {
+						errors.incrementAndGet();
+					}
+					latencies.record(System.nanoTime() - start);
+				}
+			});
+		}
+
+		lookupExecutor.shutdown();
+		lookupExecutor.awaitTermination(seconds + 60, TimeUnit.SECONDS);
+		joinScheduler.shutdownNow();
+		joinExecutor.shutdown();
+		joinExecutor.awaitTermination(60, TimeUnit.SECONDS);
+
+		// The database lock is a ReentrantLock, whose waiters are parked rather than blocked,
+		// so its contention is measured by the connection source.
+		// Threads blocked on monitors are blocked on the RAM cache and other synchronized locks.
+		long blockedCount = 0;
+		long blockedMillis = 0;
+		synchronized (workers) {
+			for (Thread worker : workers) {
+				ThreadInfo info = threadBean.getThreadInfo(worker.getId());
+				if (info != null) {
+					blockedCount += info.getBlockedCount();
+					blockedMillis += Math.max(0, info.getBlockedTime());
+				}
+			}
+		}
+
+		LatencyRecorder allLookups = new LatencyRecorder();
+		lookupLatencies.forEach(allLookups::addAll);
+
+		System.out.println("=== Name cache join storm ===");
+		System.out.printf("players=%d joins/s=%d seconds=%d lookupThreads=%d mojangLatency=%dms%n",
+				playerCount, joinsPerSecond, seconds, lookupThreads, mojangLatencyMillis);
+		joinLatencies.print("joins", seconds);
+		allLookups.print("lookups", seconds);
+		System.out.printf("database lock contention: %d waits, %dms waiting%n",
+				connectionSource.getWaitCount(), TimeUnit.NANOSECONDS.toMillis(connectionSource.getWaitNanos()));
+		System.out.printf("monitor contention: %d blocks, %dms blocked%n", blockedCount, blockedMillis);
+		System.out.printf("mojang requests: %d%n", mojangServer.getRequestCount());
+		System.out.printf("errors: %d%n", errors.get());
+
+		Assert.assertEquals("Lookups resolved the wrong player", 0, errors.get());
+	}
+
+	/**
+	 * Records operation latencies.
+	 */
+	private static class LatencyRecorder {
+
+		private long[] samples = new long[1024];
+		private int size = 0;
+
+		synchronized void record(long nanos) {
+			if (size == samples.length) {
+				samples = Arrays.copyOf(samples, size * 2);
+			}
+			samples[size++] = nanos;
+		}
+
+		synchronized void addAll(LatencyRecorder other) {
+			synchronized (other) {
+				for (int i = 0; i < other.size; i++) {
+					record(other.samples[i]);
+				}
+			}
+		}
+
+		/**
+		 * Prints the throughput and latency percentiles.
+		 *
+		 * @param name The name of the operation.
+		 * @param seconds The number of seconds the operations ran for.
+		 */
+		synchronized void print(String name, int seconds) {
+			long[] sorted = Arrays.copyOf(samples, size);
+			Arrays.sort(sorted);
+			System.out.printf("%s: %d ops, %.1f ops/s, p50=%.2fms p99=%.2fms p99.9=%.2fms max=%.2fms%n",
+					name, size, size / (double) seconds,
+					percentile(sorted, 0.5), percentile(sorted, 0.99), percentile(sorted, 0.999),
+					sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1e6);
+		}
+
+		private static double percentile(long[] sorted, double percentile) {
+			if (sorted.length == 0) {
+				return 0;
+			}
+			return sorted[(int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1)] / 1e6;
+		}
+
+	}
+
+}
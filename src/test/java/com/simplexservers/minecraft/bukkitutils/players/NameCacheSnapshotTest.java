@@ -0,0 +1,215 @@
+package com.simplexservers.minecraft.bukkitutils.players;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for the binary snapshot format of the name cache.
+ */
+public class NameCacheSnapshotTest {
+
+	/**
+	 * The magic number snapshots start with.
+	 */
+	private static final int MAGIC = 0x4E43534E;
+
+	/**
+	 * UUIDs in ascending unsigned order, covering equal most significant bits with
+	 * least significant deltas of every size, and the sign bits of each half.
+	 */
+	private static final List<UUID> EDGE_UUIDS = Arrays.asList(
+			new UUID(0L, 0L),
+			new UUID(0L, 1L),
+			new UUID(0L, Long.MAX_VALUE),
+			new UUID(0L, Long.MIN_VALUE),
+			new UUID(0L, -1L),
+			new UUID(1L, 0L),
+			new UUID(Long.MAX_VALUE, -1L),
+			new UUID(Long.MIN_VALUE, 0L),
+			new UUID(Long.MIN_VALUE, 1L),
+			new UUID(-1L, 0L),
+			new UUID(-1L, -1L)
+	);
+
+	/**
+	 * Tests that edge value UUIDs round trip, with and without compression.
+	 *
+	 * @throws Exception If the snapshot could not be written or read.
+	 */
+	@Test
+	public void testEdgeValueRoundTrip() throws Exception {
+		for (boolean compress : new boolean[] {false, true}) {
+			List<String> usernames = new ArrayList<>();
+			for (int i = 0; i < EDGE_UUIDS.size(); i++) {
+				usernames.add("Player" + i);
+			}
+
+			assertRoundTrip(EDGE_UUIDS, usernames, compress);
+		}
+	}
+
+	/**
+	 * Tests that UUIDs out of order still round trip, since their deltas wrap around.
+	 *
+	 * @throws Exception If the snapshot could not be written or read.
+	 */
+	@Test
+	public void testDescendingRoundTrip() throws Exception {
+		List<UUID> uuids = new ArrayList<>(EDGE_UUIDS);
+		Collections.reverse(uuids);
+		List<String> usernames = new ArrayList<>();
+		for (int i = 0; i < uuids.size(); i++) {
+			usernames.add("Player" + i);
+		}
+
+		assertRoundTrip(uuids, usernames, false);
+	}
+
+	/**
+	 * Tests that empty and multi-byte UTF-8 usernames round trip, as does an empty snapshot.
+	 *
+	 * @throws Exception If the snapshot could not be written or read.
+	 */
+	@Test
+	public void testUsernames() throws Exception {
+		assertRoundTrip(Arrays.asList(new UUID(0L, 1L), new UUID(0L, 2L), new UUID(0L, 3L)),
+				Arrays.asList("", "\u00e9t\u00e9", "\u2603\ud83d\ude00"), true);
+		assertRoundTrip(new ArrayList<>(), new ArrayList<>(), true);
+	}
+
+	/**
+	 * Tests that writing more records than the snapshot's count fails.
+	 *
+	 * @throws Exception If the snapshot could not be written.
+	 */
+	@Test(expected = IllegalStateException.class)
+	public void testTooManyRecords() throws Exception {
+		NameCacheSnapshot.Writer writer = new NameCacheSnapshot.Writer(new ByteArrayOutputStream(), 1, false);
+		writer.write(new UUID(0L, 1L), "First");
+		writer.write(new UUID(0L, 2L), "Second");
+	}
+
+	/**
+	 * Tests that finishing a snapshot with fewer records than its count fails.
+	 *
+	 * @throws Exception If the snapshot could not be written.
+	 */
+	@Test(expected = IllegalStateException.class)
+	public void testTooFewRecords() throws Exception {
+		NameCacheSnapshot.Writer writer = new NameCacheSnapshot.Writer(new ByteArrayOutputStream(), 2, false);
+		writer.write(new UUID(0L, 1L), "First");
+		writer.finish();
+	}
+
+	/**
+	 * Tests that streams that aren't snapshots, or are of an unknown version, are rejected.
+	 *
+	 * @throws Exception If the header could not be written.
+	 */
+	@Test
+	public void testInvalidHeader() throws Exception {
+		assertCorrupt(header(0x12345678, 1, 0));
+		assertCorrupt(header(MAGIC, 2, 0));
+		assertCorrupt(new byte[] {0x4E, 0x43});
+	}
+
+	/**
+	 * Tests that corrupt bodies are rejected: a VarLong longer than 64 bits,
+	 * a username longer than the maximum and a truncated record.
+	 *
+	 * @throws Exception If the snapshot could not be written.
+	 */
+	@Test
+	public void testCorruptBody() throws Exception {
+		ByteArrayOutputStream tooLong = new ByteArrayOutputStream();
+		tooLong.write(header(MAGIC, 1, 0));
+		for (int i = 0; i < 10; i++) {
+			tooLong.write(0x80);
+		}
+		assertCorrupt(tooLong.toByteArray());
+
+		ByteArrayOutputStream longName = new ByteArrayOutputStream();
+		longName.write(header(MAGIC, 1, 0));
+		longName.write(new byte[] {1, 0, 0, 65}); // 1 record, no UUID deltas, 65 byte username
+		assertCorrupt(longName.toByteArray());
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		NameCacheSnapshot.Writer writer = new NameCacheSnapshot.Writer(out, 1, false);
+		writer.write(new UUID(1L, 2L), "Truncated");
+		writer.finish();
+		assertCorrupt(Arrays.copyOf(out.toByteArray(), out.size() - 3));
+	}
+
+	/**
+	 * Writes the players to a snapshot, reads it back and checks the players are unchanged.
+	 *
+	 * @param uuids The UUIDs of the players.
+	 * @param usernames The usernames of the players.
+	 * @param compress If the snapshot should be GZIP compressed.
+	 * @throws IOException If the snapshot could not be written or read.
+	 */
+	private static void assertRoundTrip(List<UUID> uuids, List<String> usernames, boolean compress) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		NameCacheSnapshot.Writer writer = new NameCacheSnapshot.Writer(out, uuids.size(), compress);
+		for (int i = 0; i < uuids.size(); i++) {
+			writer.write(uuids.get(i), usernames.get(i));
+		}
+		writer.finish();
+
+		NameCacheSnapshot.Reader reader = new NameCacheSnapshot.Reader(new ByteArrayInputStream(out.toByteArray()));
+		Assert.assertEquals(uuids.size(), reader.getCount());
+		for (int i = 0; i < uuids.size(); i++) {
+			Assert.assertTrue(reader.next());
+			Assert.assertEquals(uuids.get(i), reader.getUUID());
+			Assert.assertEquals(usernames.get(i), reader.getUsername());
+		}
+		Assert.assertFalse(reader.next());
+	}
+
+	/**
+	 * Checks that reading every record of the snapshot fails.
+	 *
+	 * @param snapshot The corrupt snapshot.
+	 */
+	private static void assertCorrupt(byte[] snapshot) {
+		try {
+			NameCacheSnapshot.Reader reader = new NameCacheSnapshot.Reader(new ByteArrayInputStream(snapshot));
+			while (reader.next()) {
+				// Read every record
+			}
+			Assert.fail("Reading the corrupt snapshot should fail");
+		} catch (IOException e) {
+			// Expected
+		}
+	}
+
+	/**
+	 * Creates a snapshot header.
+	 *
+	 * @param magic The magic number.
+	 * @param version The format version.
+	 * @param flags The flags.
+	 * @return The header.
+	 * @throws IOException If the header could not be written.
+	 */
+	private static byte[] header(int magic, int version, int flags) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(magic);
+		out.writeByte(version);
+		out.writeByte(flags);
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+}
@@ -0,0 +1,189 @@
+package com.simplexservers.minecraft.bukkitutils.players;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the SQL name cache backend, run against an embedded H2 database in MySQL mode.
+ */
+public class SQLNameCacheBackendTest {
+
+	/**
+	 * The JDBC URL of the in-memory database.
+	 * MySQL's default collation compares case-insensitively, which H2 needs IGNORECASE for.
+	 */
+	private static final String DB_URL = "jdbc:h2:mem:namecache;MODE=MySQL;IGNORECASE=TRUE;DB_CLOSE_DELAY=-1";
+
+	/**
+	 * The backend being tested.
+	 */
+	private SQLNameCacheBackend backend;
+
+	/**
+	 * Creates the backend and its schema.
+	 *
+	 * @throws Exception If the database could not be initialized.
+	 */
+	@Before
+	public void setUp() throws Exception {
+		PooledConnectionSource connections = new PooledConnectionSource(() -> DriverManager.getConnection(DB_URL), 4, 1000L);
+		backend = new SQLNameCacheBackend(SQLDialect.MYSQL, connections);
+		backend.initialize();
+		backend.initialize(); // The schema must be created only once
+	}
+
+	/**
+	 * Drops the database and closes the backend.
+	 *
+	 * @throws Exception If the database could not be dropped.
+	 */
+	@After
+	public void tearDown() throws Exception {
+		backend.close();
+		try (Connection conn = DriverManager.getConnection(DB_URL); Statement stmt = conn.createStatement()) {
+			stmt.execute("DROP ALL OBJECTS");
+		}
+	}
+
+	/**
+	 * Tests that stored players can be looked up by UUID and username.
+	 *
+	 * @throws Exception If the database could not be queried.
+	 */
+	@Test
+	public void testPutAndGet() throws Exception {
+		UUID uuid = UUID.randomUUID();
+		backend.put(uuid, "Notch");
+
+		Assert.assertEquals(uuid, backend.getUUID("Notch"));
+		Assert.assertEquals(uuid, backend.getUUID("notch"));
+		Assert.assertEquals("Notch", backend.getUsername(uuid));
+		Assert.assertNull(backend.getUsername(UUID.randomUUID()));
+		Assert.assertNull(backend.getUUID("jeb_"));
+		Assert.assertEquals(1, backend.count());
+	}
+
+	/**
+	 * Tests that looking up a player by username returns their stored username, in its stored case.
+	 *
+	 * @throws Exception If the database could not be queried.
+	 */
+	@Test
+	public void testGetPlayer() throws Exception {
+		UUID uuid = UUID.randomUUID();
+		backend.put(uuid, "Notch");
+
+		Map.Entry<UUID, String> player = backend.getPlayer("nOTCH");
+		Assert.assertEquals(uuid, player.getKey());
+		Assert.assertEquals("Notch", player.getValue());
+		Assert.assertNull(backend.getPlayer("jeb_"));
+	}
+
+	/**
+	 * Tests that a username taken by another player no longer resolves to its previous owner,
+	 * and that a player's new username replaces their old one.
+	 *
+	 * @throws Exception If the database could not be queried.
+	 */
+	@Test
+	public void testNameChange() throws Exception {
+		UUID first = UUID.randomUUID();
+		UUID second = UUID.randomUUID();
+		backend.put(first, "Steve");
+		backend.put(first, "Alex");
+		Assert.assertNull(backend.getUUID("Steve"));
+		Assert.assertEquals("Alex", backend.getUsername(first));
+
+		Map<UUID, String> players = new HashMap<>();
+		players.put(second, "alex");
+		backend.putAll(players);
+		Assert.assertEquals(second, backend.getUUID("Alex"));
+		Assert.assertNull(backend.getUsername(first));
+	}
+
+	/**
+	 * Tests that a MySQL database is reported as shared, so the name cache doesn't flush other servers' players.
+	 */
+	@Test
+	public void testShared() {
+		Assert.assertTrue(backend.isShared());
+	}
+
+	/**
+	 * Tests that flushing removes every player except the retained ones.
+	 *
+	 * @throws Exception If the database could not be queried.
+	 */
+	@Test
+	public void testRetainOnly() throws Exception {
+		Map<UUID, String> players = new HashMap<>();
+		for (int i = 0; i < 10; i++) {
+			players.put(UUID.randomUUID(), "Player" + i);
+		}
+		backend.putAll(players);
+
+		UUID online = players.keySet().iterator().next();
+		backend.retainOnly(Collections.singleton(online));
+		Assert.assertEquals(1, backend.count());
+		Assert.assertEquals(players.get(online), backend.getUsername(online));
+
+		backend.retainOnly(Collections.emptySet());
+		Assert.assertEquals(0, backend.count());
+	}
+
+	/**
+	 * Tests that the players exported to a snapshot are imported unchanged.
+	 *
+	 * @throws Exception If the snapshot could not be written or read.
+	 */
+	@Test
+	public void testSnapshotRoundTrip() throws Exception {
+		Map<UUID, String> players = new HashMap<>();
+		for (int i = 0; i < 1000; i++) {
+			players.put(UUID.randomUUID(), "Player" + i);
+		}
+		backend.putAll(players);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		NameCacheSnapshot.Writer[] writer = new NameCacheSnapshot.Writer[1];
+		backend.export(new NameCacheBackend.ExportConsumer() {
+			@Override
+			public void begin(long count) throws IOException {
+				writer[0] = new NameCacheSnapshot.Writer(out, count, true);
+			}
+
+			@Override
+			public void accept(UUID uuid, String username) throws IOException {
+				writer[0].write(uuid, username);
+			}
+		});
+		writer[0].finish();
+
+		backend.retainOnly(Collections.emptySet());
+		long imported = backend.importAll(new NameCacheSnapshot.Reader(new ByteArrayInputStream(out.toByteArray())));
+		Assert.assertEquals(players.size(), imported);
+
+		Set<UUID> found = new HashSet<>();
+		backend.forEach((uuid, username) -> {
+			Assert.assertEquals(players.get(uuid), username);
+			found.add(uuid);
+		});
+		Assert.assertEquals(players.keySet(), found);
+	}
+
+}
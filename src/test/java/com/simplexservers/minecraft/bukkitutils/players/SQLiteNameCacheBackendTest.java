@@ -0,0 +1,145 @@
+package com.simplexservers.minecraft.bukkitutils.players;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the SQLite dialect of the SQL name cache backend, run against a temporary SQLite database.
+ */
+public class SQLiteNameCacheBackendTest {
+
+	/**
+	 * The file of the database.
+	 */
+	private Path dbFile;
+	/**
+	 * The connection to the database.
+	 */
+	private Connection connection;
+	/**
+	 * The backend being tested.
+	 */
+	private SQLNameCacheBackend backend;
+
+	/**
+	 * Creates the database and the backend, without initializing it.
+	 *
+	 * @throws Exception If the database could not be created.
+	 */
+	@Before
+	public void setUp() throws Exception {
+		dbFile = Files.createTempFile("namecache-sqlite", ".db");
+		connection = DriverManager.getConnection("jdbc:sqlite:" + dbFile);
+		backend = new SQLNameCacheBackend(SQLDialect.SQLITE, new SingleConnectionSource(() -> connection, () -> {}));
+	}
+
+	/**
+	 * Closes the backend and deletes the database.
+	 *
+	 * @throws Exception If the database could not be deleted.
+	 */
+	@After
+	public void tearDown() throws Exception {
+		backend.close();
+		connection.close();
+		Files.deleteIfExists(dbFile);
+	}
+
+	/**
+	 * Tests that initializing creates the table, the username index and the schema version.
+	 *
+	 * @throws Exception If the database could not be queried.
+	 */
+	@Test
+	public void testCreateSchema() throws Exception {
+		backend.initialize();
+
+		Assert.assertTrue(hasTable(SQLDialect.TABLE));
+		Assert.assertTrue(hasIndex(SQLDialect.USERNAME_INDEX));
+		Assert.assertEquals(2, getUserVersion());
+		Assert.assertEquals(0, backend.count());
+		Assert.assertFalse(backend.isShared());
+	}
+
+	/**
+	 * Tests that the players in the legacy hex string table are moved into the binary table,
+	 * that corrupt rows are skipped, and that the legacy table is dropped.
+	 *
+	 * @throws Exception If the database could not be queried.
+	 */
+	@Test
+	public void testLegacyMigration() throws Exception {
+		UUID uuid = UUID.fromString("069a79f4-44e9-4726-a5be-fca90e38aaf5");
+		try (Statement stmt = connection.createStatement()) {
+			stmt.execute("CREATE TABLE player_uuid_cache " +
+					"(uuid     CHAR(32)         PRIMARY KEY  NOT NULL," +
+					" username VARCHAR(16)                   NOT NULL)");
+			stmt.execute("INSERT INTO player_uuid_cache VALUES('" + uuid.toString().replace("-", "") + "', 'Notch')");
+			stmt.execute("INSERT INTO player_uuid_cache VALUES('not a uuid', 'Corrupt')");
+			stmt.execute("INSERT INTO player_uuid_cache VALUES('zz9a79f444e94726a5befca90e38aaf5', 'BadHex')");
+		}
+
+		backend.initialize();
+
+		Assert.assertFalse(hasTable("player_uuid_cache"));
+		Assert.assertEquals(1, backend.count());
+		Assert.assertEquals("Notch", backend.getUsername(uuid));
+		Assert.assertEquals(uuid, backend.getUUID("notch"));
+		Assert.assertNull(backend.getUUID("Corrupt"));
+		Assert.assertNull(backend.getUUID("BadHex"));
+	}
+
+	/**
+	 * Tests that initializing an initialized database keeps its players and schema.
+	 *
+	 * @throws Exception If the database could not be queried.
+	 */
+	@Test
+	public void testReinitialize() throws Exception {
+		backend.initialize();
+		UUID uuid = UUID.randomUUID();
+		backend.put(uuid, "Steve");
+
+		backend.initialize();
+
+		Assert.assertEquals(2, getUserVersion());
+		Assert.assertEquals(1, backend.count());
+		Assert.assertEquals("Steve", backend.getUsername(uuid));
+		Assert.assertEquals(uuid, backend.getUUID("STEVE"));
+		Assert.assertEquals("Steve", backend.getPlayer("STEVE").getValue());
+	}
+
+	private boolean hasTable(String table) throws SQLException {
+		return hasSchemaObject("table", table);
+	}
+
+	private boolean hasIndex(String index) throws SQLException {
+		return hasSchemaObject("index", index);
+	}
+
+	private boolean hasSchemaObject(String type, String name) throws SQLException {
+		try (Statement stmt = connection.createStatement();
+		     ResultSet res = stmt.executeQuery("SELECT name FROM sqlite_master WHERE type = '" + type + "' AND name = '" + name + "'")) {
+			return res.next();
+		}
+	}
+
+	private int getUserVersion() throws SQLException {
+		try (Statement stmt = connection.createStatement();
+		     ResultSet res = stmt.executeQuery("PRAGMA user_version")) {
+			return res.next() ? res.getInt(1) : 0;
+		}
+	}
+
+}
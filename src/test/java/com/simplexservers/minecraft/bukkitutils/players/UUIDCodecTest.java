@@ -0,0 +1,98 @@
+package com.simplexservers.minecraft.bukkitutils.players;
+
+import java.util.UUID;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for the binary and legacy hex UUID encodings.
+ */
+public class UUIDCodecTest {
+
+	/**
+	 * UUIDs at the edges of the encoding: zero, all bits set and the sign bits of each half.
+	 */
+	private static final UUID[] EDGE_UUIDS = {
+			new UUID(0L, 0L),
+			new UUID(-1L, -1L),
+			new UUID(Long.MIN_VALUE, 0L),
+			new UUID(0L, Long.MIN_VALUE),
+			new UUID(Long.MAX_VALUE, Long.MAX_VALUE),
+			UUID.fromString("069a79f4-44e9-4726-a5be-fca90e38aaf5")
+	};
+
+	/**
+	 * Tests that UUIDs are encoded as 16 big-endian bytes, most significant bits first.
+	 */
+	@Test
+	public void testToBytes() {
+		byte[] bytes = UUIDCodec.toBytes(new UUID(0x0102030405060708L, 0x090A0B0C0D0E0F10L));
+		Assert.assertEquals(UUIDCodec.UUID_BYTES, bytes.length);
+		for (int i = 0; i < bytes.length; i++) {
+			Assert.assertEquals(i + 1, bytes[i]);
+		}
+	}
+
+	/**
+	 * Tests that encoded UUIDs decode to the same UUID.
+	 */
+	@Test
+	public void testBytesRoundTrip() {
+		for (UUID uuid : EDGE_UUIDS) {
+			Assert.assertEquals(uuid, UUIDCodec.fromBytes(UUIDCodec.toBytes(uuid)));
+		}
+	}
+
+	/**
+	 * Tests that byte arrays of the wrong length are rejected.
+	 */
+	@Test
+	public void testInvalidBytes() {
+		for (byte[] bytes : new byte[][] {null, new byte[0], new byte[15], new byte[17]}) {
+			try {
+				UUIDCodec.fromBytes(bytes);
+				Assert.fail("Decoding " + (bytes == null ? "null" : bytes.length + " bytes") + " should fail");
+			} catch (IllegalArgumentException e) {
+				// Expected
+			}
+		}
+	}
+
+	/**
+	 * Tests that legacy hex UUIDs, in either case, decode to the UUID they were written from.
+	 */
+	@Test
+	public void testFromHex() {
+		for (UUID uuid : EDGE_UUIDS) {
+			String hex = uuid.toString().replace("-", "");
+			Assert.assertEquals(uuid, UUIDCodec.fromHex(hex));
+			Assert.assertEquals(uuid, UUIDCodec.fromHex(hex.toUpperCase()));
+		}
+	}
+
+	/**
+	 * Tests that corrupt legacy hex UUIDs are rejected.
+	 */
+	@Test
+	public void testInvalidHex() {
+		String[] invalid = {
+				null,
+				"",
+				"069a79f444e94726a5befca90e38aaf",
+				"069a79f444e94726a5befca90e38aaf50",
+				"069a79f4-44e9-4726-a5be-fca90e38aaf5",
+				"z69a79f444e94726a5befca90e38aaf5",
+				"069a79f444e94726a5befca90e38aafg"
+		};
+		for (String hex : invalid) {
+			try {
+				UUIDCodec.fromHex(hex);
+				Assert.fail("Decoding '" + hex + "' should fail");
+			} catch (IllegalArgumentException e) {
+				// Expected
+			}
+		}
+	}
+
+}
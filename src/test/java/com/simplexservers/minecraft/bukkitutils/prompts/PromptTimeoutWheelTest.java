@@ -0,0 +1,111 @@
+package com.simplexservers.minecraft.bukkitutils.prompts;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for the timeout wheel of pending prompts.
+ */
+public class PromptTimeoutWheelTest {
+
+	/**
+	 * The wheel being tested.
+	 */
+	private final PromptTimeoutWheel wheel = new PromptTimeoutWheel();
+	/**
+	 * The prompts that have been answered or cancelled.
+	 */
+	private final Set<PendingPrompt> ended = new HashSet<>();
+
+	/**
+	 * Tests that a prompt times out on the tick its timeout ends, counted from the tick after it was scheduled.
+	 */
+	@Test
+	public void testTimeout() {
+		PendingPrompt prompt = createPrompt(3);
+		wheel.schedule(prompt);
+		Assert.assertFalse(wheel.isEmpty());
+
+		Assert.assertEquals(Collections.emptyList(), tick(3));
+		Assert.assertEquals(Collections.singletonList(prompt), tick(1));
+		Assert.assertTrue(wheel.isEmpty());
+		Assert.assertEquals(Collections.emptyList(), tick(200));
+	}
+
+	/**
+	 * Tests that a prompt whose timeout is longer than a turn of the wheel isn't timed out early.
+	 */
+	@Test
+	public void testTimeoutLongerThanWheel() {
+		PendingPrompt prompt = createPrompt(150);
+		wheel.schedule(prompt);
+
+		Assert.assertEquals(Collections.emptyList(), tick(150));
+		Assert.assertEquals(Collections.singletonList(prompt), tick(1));
+	}
+
+	/**
+	 * Tests that prompts that ended before their timeout are dropped without timing out.
+	 */
+	@Test
+	public void testEndedPrompt() {
+		PendingPrompt answered = createPrompt(5);
+		PendingPrompt pending = createPrompt(5);
+		wheel.schedule(answered);
+		wheel.schedule(pending);
+
+		tick(2);
+		ended.add(answered);
+		Assert.assertEquals(Collections.singletonList(pending), tick(4));
+		Assert.assertTrue(wheel.isEmpty());
+	}
+
+	/**
+	 * Tests that prompts with different timeouts time out in order of their deadline.
+	 */
+	@Test
+	public void testManyPrompts() {
+		List<PendingPrompt> prompts = new ArrayList<>();
+		for (int timeout = 1; timeout <= 200; timeout++) {
+			PendingPrompt prompt = createPrompt(timeout);
+			prompts.add(prompt);
+			wheel.schedule(prompt);
+		}
+
+		List<PendingPrompt> timedOut = tick(201);
+		Assert.assertEquals(prompts, timedOut);
+		Assert.assertTrue(wheel.isEmpty());
+	}
+
+	/**
+	 * Creates a pending prompt for a random player.
+	 *
+	 * @param timeoutTicks The number of wheel ticks until the prompt times out.
+	 * @return The pending prompt.
+	 */
+	private static PendingPrompt createPrompt(long timeoutTicks) {
+		return new PendingPrompt(UUID.randomUUID(), null, null, null, timeoutTicks);
+	}
+
+	/**
+	 * Advances the wheel.
+	 *
+	 * @param ticks The number of ticks to advance the wheel.
+	 * @return The prompts that timed out, in the order they timed out.
+	 */
+	private List<PendingPrompt> tick(int ticks) {
+		List<PendingPrompt> timedOut = new ArrayList<>();
+		for (int i = 0; i < ticks; i++) {
+			wheel.tick(prompt -> !ended.contains(prompt), timedOut::add);
+		}
+		return timedOut;
+	}
+
+}